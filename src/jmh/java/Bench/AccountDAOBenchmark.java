@@ -0,0 +1,88 @@
+package Bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import DAO.AccountDAO;
+import Model.Account;
+
+/**
+ * Benchmarks every AccountDAO method against a SeededDatabase.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="AccountDAOBenchmark -p accounts=100,100000 -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Dsocialmedia.db.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1" })
+public class AccountDAOBenchmark {
+
+    /**
+     * ids looked up by one selectExistingAccountIds call, like a batch post
+     * from that many posters
+     */
+    private static final int POSTERS = 10;
+
+    private final AtomicLong registrations = new AtomicLong();
+    private AccountDAO accountDAO;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        accountDAO = new AccountDAO();
+    }
+
+    @Benchmark
+    public Account selectAccountByUsername(SeededDatabase db) {
+        return accountDAO.selectAccountByUsername(db.username(db.randomAccountId()));
+    }
+
+    @Benchmark
+    public Account selectAccountByAccountId(SeededDatabase db) {
+        return accountDAO.selectAccountByAccountId(db.randomAccountId());
+    }
+
+    @Benchmark
+    public Set<Integer> selectExistingAccountIds(SeededDatabase db) {
+        List<Integer> ids = new ArrayList<>(POSTERS);
+        for (int i = 0; i < POSTERS; i++) {
+            ids.add(db.randomAccountId());
+        }
+        return accountDAO.selectExistingAccountIds(ids);
+    }
+
+    @Benchmark
+    public boolean streamAccountIds(SeededDatabase db, Blackhole blackhole) throws IOException {
+        return accountDAO.streamAccountIds(blackhole::consume);
+    }
+
+    @Benchmark
+    public boolean streamUsernames(SeededDatabase db, Blackhole blackhole) throws IOException {
+        return accountDAO.streamUsernames(blackhole::consume);
+    }
+
+    @Benchmark
+    public Account insertAccount(SeededDatabase db) {
+        return accountDAO.insertAccount(new Account("bench" + registrations.incrementAndGet(), "password"));
+    }
+}
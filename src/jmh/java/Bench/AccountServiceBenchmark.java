@@ -0,0 +1,58 @@
+package Bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Model.Account;
+import Service.AccountService;
+
+/**
+ * Benchmarks every AccountService method against a SeededDatabase.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="AccountServiceBenchmark -p accounts=100,100000 -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Dsocialmedia.db.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1" })
+public class AccountServiceBenchmark {
+
+    private final AtomicLong registrations = new AtomicLong();
+    private AccountService accountService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        accountService = new AccountService();
+    }
+
+    @Benchmark
+    public Account postRegister(SeededDatabase db) {
+        return accountService.postRegister(new Account("bench" + registrations.incrementAndGet(), "password"));
+    }
+
+    @Benchmark
+    public Account postRegisterTaken(SeededDatabase db) {
+        return accountService.postRegister(new Account(db.username(db.randomAccountId()), "password"));
+    }
+
+    @Benchmark
+    public Account postLogin(SeededDatabase db) {
+        return accountService.postLogin(new Account(db.username(db.randomAccountId()), "password"));
+    }
+}
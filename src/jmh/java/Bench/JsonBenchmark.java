@@ -0,0 +1,147 @@
+package Bench;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Model.Account;
+import Model.Message;
+import Util.JsonCodec;
+
+/**
+ * Compares the JSON cost of a request before and after JsonCodec, for a
+ * Message, an Account and a List of Message.
+ *
+ * The "plain" benchmarks repeat what the controller used to do: decode the
+ * body to a String, then ObjectMapper.readValue, and writeValueAsString for the
+ * response. The "codec" benchmarks go through JsonCodec the way the controller
+ * and ctx.json now do: parse from the body bytes and write with a cached
+ * ObjectWriter, both with Blackbird accessors.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="JsonBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    private static final Type MESSAGE_LIST = new TypeReference<List<Message>>() {
+    }.getType();
+
+    /**
+     * number of messages in the list benchmarks
+     */
+    @Param({ "100" })
+    public int listSize;
+
+    private ObjectMapper mapper;
+    private JsonCodec codec;
+
+    private Message message;
+    private Account account;
+    private List<Message> messages;
+
+    private byte[] messageJson;
+    private byte[] accountJson;
+    private byte[] messagesJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        mapper = new ObjectMapper();
+        codec = new JsonCodec();
+        message = new Message(1, 1, "benchmark message text of a typical length", 1669947792);
+        account = new Account(1, "testuser1", "password");
+        messages = new ArrayList<>();
+        for (int i = 1; i <= listSize; i++) {
+            messages.add(new Message(i, i % 100 + 1, "benchmark message " + i, 1669947792L + i));
+        }
+        messageJson = mapper.writeValueAsBytes(message);
+        accountJson = mapper.writeValueAsBytes(account);
+        messagesJson = mapper.writeValueAsBytes(messages);
+    }
+
+    @Benchmark
+    public Message plainDecodeMessage() throws Exception {
+        return mapper.readValue(new String(messageJson, StandardCharsets.UTF_8), Message.class);
+    }
+
+    @Benchmark
+    public Message codecDecodeMessage() {
+        return codec.fromJsonStream(new ByteArrayInputStream(messageJson), Message.class);
+    }
+
+    @Benchmark
+    public String plainEncodeMessage() throws Exception {
+        return mapper.writeValueAsString(message);
+    }
+
+    @Benchmark
+    public String codecEncodeMessage() {
+        return codec.toJsonString(message, Message.class);
+    }
+
+    @Benchmark
+    public Account plainDecodeAccount() throws Exception {
+        return mapper.readValue(new String(accountJson, StandardCharsets.UTF_8), Account.class);
+    }
+
+    @Benchmark
+    public Account codecDecodeAccount() {
+        return codec.fromJsonStream(new ByteArrayInputStream(accountJson), Account.class);
+    }
+
+    @Benchmark
+    public String plainEncodeAccount() throws Exception {
+        return mapper.writeValueAsString(account);
+    }
+
+    @Benchmark
+    public String codecEncodeAccount() {
+        return codec.toJsonString(account, Account.class);
+    }
+
+    @Benchmark
+    public List<Message> plainDecodeMessages() throws Exception {
+        return mapper.readValue(new String(messagesJson, StandardCharsets.UTF_8), new TypeReference<List<Message>>() {
+        });
+    }
+
+    @Benchmark
+    public List<Message> codecDecodeMessages() {
+        return codec.fromJsonStream(new ByteArrayInputStream(messagesJson), MESSAGE_LIST);
+    }
+
+    @Benchmark
+    public String plainEncodeMessages() throws Exception {
+        return mapper.writeValueAsString(messages);
+    }
+
+    @Benchmark
+    public String codecEncodeMessages() {
+        return codec.toJsonString(messages, MESSAGE_LIST);
+    }
+}
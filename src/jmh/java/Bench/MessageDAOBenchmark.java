@@ -0,0 +1,164 @@
+package Bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import DAO.MessageDAO;
+import Model.Message;
+
+/**
+ * Benchmarks every MessageDAO method against a SeededDatabase.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="MessageDAOBenchmark -p messages=1000,100000 -prof gc"
+ * </pre>
+ *
+ * selectAllMessages and streamAllMessages read the whole table, so at millions
+ * of messages they measure seconds per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Dsocialmedia.db.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1" })
+public class MessageDAOBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+    private static final int BATCH_SIZE = 100;
+    private static final long TIME_RANGE_SECONDS = 1000;
+
+    private MessageDAO messageDAO;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        messageDAO = new MessageDAO();
+    }
+
+    /**
+     * a freshly inserted message for each delete to remove; the insert is not
+     * part of the measurement
+     */
+    @State(Scope.Thread)
+    public static class Victim {
+        int message_id;
+
+        @Setup(Level.Invocation)
+        public void insert(SeededDatabase db) {
+            message_id = new MessageDAO().insertMessage(new Message(1, "to be deleted", 1669947792)).message_id;
+        }
+    }
+
+    @Benchmark
+    public Message insertMessage(SeededDatabase db) {
+        return messageDAO.insertMessage(new Message(db.randomAccountId(), "inserted by the benchmark", 1669947792));
+    }
+
+    @Benchmark
+    public List<Message> insertMessages(SeededDatabase db) {
+        List<Message> msgs = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            msgs.add(new Message(db.randomAccountId(), "batched by the benchmark", 1669947792));
+        }
+        return messageDAO.insertMessages(msgs);
+    }
+
+    @Benchmark
+    public List<Message> selectAllMessages(SeededDatabase db) {
+        return messageDAO.selectAllMessages();
+    }
+
+    @Benchmark
+    public Message selectMessageByMessageId(SeededDatabase db) {
+        return messageDAO.selectMessageByMessageId(db.randomMessageId());
+    }
+
+    @Benchmark
+    public List<Message> selectMessagesByPostedBy(SeededDatabase db) {
+        return messageDAO.selectMessagesByPostedBy(db.randomAccountId());
+    }
+
+    @Benchmark
+    public boolean streamAllMessages(SeededDatabase db, Blackhole blackhole) throws IOException {
+        return messageDAO.streamAllMessages(blackhole::consume);
+    }
+
+    @Benchmark
+    public boolean streamMessagesByPostedBy(SeededDatabase db, Blackhole blackhole) throws IOException {
+        return messageDAO.streamMessagesByPostedBy(db.randomAccountId(), blackhole::consume);
+    }
+
+    @Benchmark
+    public List<Message> selectMessagesAfter(SeededDatabase db) {
+        return messageDAO.selectMessagesAfter(db.randomMessageId(), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Message> selectMessagesByPostedByAfter(SeededDatabase db) {
+        return messageDAO.selectMessagesByPostedByAfter(db.randomAccountId(), db.randomMessageId(), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Message> selectMessagesInTimeRange(SeededDatabase db) {
+        long since = db.randomTimePostedEpoch();
+        return messageDAO.selectMessagesInTimeRange(since, 0, since + TIME_RANGE_SECONDS, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Message> selectMessagesByPostedByInTimeRange(SeededDatabase db) {
+        long since = db.randomTimePostedEpoch();
+        return messageDAO.selectMessagesByPostedByInTimeRange(db.randomAccountId(), since, 0,
+                since + TIME_RANGE_SECONDS, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Message> selectMessagesByMessageIds(SeededDatabase db) {
+        int[] ids = new int[PAGE_SIZE];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = db.randomMessageId();
+        }
+        return messageDAO.selectMessagesByMessageIds(ids);
+    }
+
+    @Benchmark
+    public int selectMaxMessageId(SeededDatabase db) {
+        return messageDAO.selectMaxMessageId();
+    }
+
+    @Benchmark
+    public boolean streamMessagesInRange(SeededDatabase db, Blackhole blackhole) throws IOException {
+        int after_id = db.randomMessageId();
+        return messageDAO.streamMessagesInRange(after_id, after_id + PAGE_SIZE, blackhole::consume);
+    }
+
+    @Benchmark
+    public List<Message> selectRecentMessagesByPostedBy(SeededDatabase db) {
+        return messageDAO.selectRecentMessagesByPostedBy(db.randomAccountId(), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Message updateMessageByMessageIdReturningOld(SeededDatabase db) {
+        return messageDAO.updateMessageByMessageIdReturningOld(db.randomMessageId(),
+                new Message(0, "patched by the benchmark", 0));
+    }
+
+    @Benchmark
+    public Message deleteMessageByMessageId(SeededDatabase db, Victim victim) {
+        return messageDAO.deleteMessageByMessageId(victim.message_id);
+    }
+}
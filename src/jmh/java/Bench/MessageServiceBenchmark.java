@@ -0,0 +1,149 @@
+package Bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import DAO.MessageDAO;
+import Model.Message;
+import Model.MessageBatchResult;
+import Model.MessagePage;
+import Service.MessageService;
+
+/**
+ * Benchmarks every MessageService method against a SeededDatabase, including
+ * the message cache in front of getMessageByMessageId.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="MessageServiceBenchmark -p messages=1000,100000 -prof gc"
+ * </pre>
+ *
+ * getAllMessages and streamAllMessages read the whole table, so at millions of
+ * messages they measure seconds per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Dsocialmedia.db.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1" })
+public class MessageServiceBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+    private static final int BATCH_SIZE = 100;
+    private static final long TIME_RANGE_SECONDS = 1000;
+
+    private MessageService messageService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        messageService = new MessageService();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        messageService.close();
+    }
+
+    /**
+     * a freshly inserted message for each delete to remove; the insert is not
+     * part of the measurement
+     */
+    @State(Scope.Thread)
+    public static class Victim {
+        int message_id;
+
+        @Setup(Level.Invocation)
+        public void insert(SeededDatabase db) {
+            message_id = new MessageDAO().insertMessage(new Message(1, "to be deleted", 1669947792)).message_id;
+        }
+    }
+
+    @Benchmark
+    public Message postMessage(SeededDatabase db) {
+        return messageService.postMessage(new Message(db.randomAccountId(), "posted by the benchmark", 1669947792));
+    }
+
+    @Benchmark
+    public List<MessageBatchResult> postMessages(SeededDatabase db) {
+        List<Message> msgs = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            msgs.add(new Message(db.randomAccountId(), "batched by the benchmark", 1669947792));
+        }
+        return messageService.postMessages(msgs);
+    }
+
+    @Benchmark
+    public List<Message> getAllMessages(SeededDatabase db) {
+        return messageService.getAllMessages();
+    }
+
+    @Benchmark
+    public Message getMessageByMessageId(SeededDatabase db) {
+        return messageService.getMessageByMessageId(db.randomMessageId());
+    }
+
+    @Benchmark
+    public List<Message> getMessagesByAccountId(SeededDatabase db) {
+        return messageService.getMessagesByAccountId(db.randomAccountId());
+    }
+
+    @Benchmark
+    public boolean streamAllMessages(SeededDatabase db, Blackhole blackhole) throws IOException {
+        return messageService.streamAllMessages(blackhole::consume);
+    }
+
+    @Benchmark
+    public boolean streamMessagesByAccountId(SeededDatabase db, Blackhole blackhole) throws IOException {
+        return messageService.streamMessagesByAccountId(db.randomAccountId(), blackhole::consume);
+    }
+
+    @Benchmark
+    public MessagePage getMessagesPage(SeededDatabase db) {
+        return messageService.getMessagesPage(null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public MessagePage getMessagesPageByAccountId(SeededDatabase db) {
+        return messageService.getMessagesPageByAccountId(db.randomAccountId(), null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public MessagePage getMessagesPageInTimeRange(SeededDatabase db) {
+        long since = db.randomTimePostedEpoch();
+        return messageService.getMessagesPageInTimeRange(since, since + TIME_RANGE_SECONDS, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public MessagePage getMessagesPageByAccountIdInTimeRange(SeededDatabase db) {
+        long since = db.randomTimePostedEpoch();
+        return messageService.getMessagesPageByAccountIdInTimeRange(db.randomAccountId(), since,
+                since + TIME_RANGE_SECONDS, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Message patchMessageByMessageIdAndMessage(SeededDatabase db) {
+        return messageService.patchMessageByMessageIdAndMessage(db.randomMessageId(),
+                new Message(0, "patched by the benchmark", 0));
+    }
+
+    @Benchmark
+    public Message deleteMessageByMessageId(SeededDatabase db, Victim victim) {
+        return messageService.deleteMessageByMessageId(victim.message_id);
+    }
+}
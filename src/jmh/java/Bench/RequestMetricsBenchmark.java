@@ -0,0 +1,55 @@
+package Bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Util.RequestMetrics;
+
+/**
+ * Measures what RequestMetrics adds to every request: begin() and end() for a
+ * registered route and for an unmatched one, from several threads at once.
+ * Run it with the GC profiler to confirm gc.alloc.rate.norm stays at zero.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="RequestMetricsBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class RequestMetricsBenchmark {
+
+    private RequestMetrics metrics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        metrics = new RequestMetrics();
+        metrics.register("GET", "/messages/{message_id}");
+    }
+
+    @Benchmark
+    public void registeredRoute() {
+        metrics.end("GET", "/messages/{message_id}", 200, metrics.begin());
+    }
+
+    @Benchmark
+    public void unmatchedRoute() {
+        metrics.end("GET", "/nope", 404, metrics.begin());
+    }
+}
@@ -0,0 +1,95 @@
+package Bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DAO.QueryRunner;
+import Model.Message;
+import Model.MessagePage;
+import Service.MessageService;
+
+/**
+ * Compares MessageService.searchMessages, served by the in-memory inverted
+ * index, with the LIKE scan it replaces, on a SeededDatabase whose messages
+ * read "benchmark message N". Also times the parallel index build a
+ * MessageService runs when it starts.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="SearchBenchmark -p messages=1000,100000"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Dsocialmedia.db.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1" })
+public class SearchBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+    private static final String LIKE_SEARCH = "SELECT * FROM message "
+            + "WHERE LOWER(message_text) LIKE ? AND LOWER(message_text) LIKE ? ORDER BY message_id LIMIT ?";
+
+    private MessageService messageService;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase db) {
+        messageService = new MessageService();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        messageService.close();
+    }
+
+    @Benchmark
+    public MessagePage indexCommonWords(SeededDatabase db) {
+        return messageService.searchMessages("benchmark message", null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public MessagePage indexRareWord(SeededDatabase db) {
+        return messageService.searchMessages("message " + db.randomMessageId(), null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Message> likeCommonWords(SeededDatabase db) {
+        return like("%benchmark%", "%message%");
+    }
+
+    @Benchmark
+    public List<Message> likeRareWord(SeededDatabase db) {
+        return like("%message%", "% " + db.randomMessageId());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public MessageService buildIndex(SeededDatabase db) {
+        MessageService service = new MessageService();
+        service.close();
+        return service;
+    }
+
+    private static List<Message> like(String first, String second) {
+        return QueryRunner.queryList("SearchBenchmark.like", LIKE_SEARCH, ps -> {
+            ps.setString(1, first);
+            ps.setString(2, second);
+            ps.setInt(3, PAGE_SIZE + 1);
+        }, rs -> new Message(rs.getInt("message_id"), rs.getInt("posted_by"), rs.getString("message_text"),
+                rs.getLong("time_posted_epoch")));
+    }
+}
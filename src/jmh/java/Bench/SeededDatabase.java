@@ -0,0 +1,65 @@
+package Bench;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import Load.SeedData;
+
+/**
+ * Benchmark state holding a database seeded by Load.SeedData with a
+ * configurable number of accounts and messages. Select the size with JMH
+ * parameters, e.g. -p messages=1000,100000,10000000 -p accounts=1000.
+ *
+ * A database that already holds exactly the requested rows is reused, which
+ * saves reseeding a large file database (socialmedia.db.url) for every fork.
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+
+    @Param({ "1000" })
+    public int messages;
+
+    @Param({ "100" })
+    public int accounts;
+
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        SeedData.seed(accounts, messages);
+    }
+
+    /**
+     * @return int a random seeded message_id
+     */
+    public int randomMessageId() {
+        return ThreadLocalRandom.current().nextInt(1, messages + 1);
+    }
+
+    /**
+     * @return long the time_posted_epoch of a random seeded message; SeedData
+     *         posts message X at 1669947792 + X
+     */
+    public long randomTimePostedEpoch() {
+        return 1669947792L + randomMessageId();
+    }
+
+    /**
+     * @return int a random seeded account_id
+     */
+    public int randomAccountId() {
+        return ThreadLocalRandom.current().nextInt(1, accounts + 1);
+    }
+
+    /**
+     * @param account_id a seeded account_id
+     * @return String the username seeded for account_id
+     */
+    public String username(int account_id) {
+        return SeedData.username(account_id);
+    }
+}
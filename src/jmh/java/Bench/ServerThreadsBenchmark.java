@@ -0,0 +1,102 @@
+package Bench;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Controller.SocialMediaController;
+import DAO.MessageDAO;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+/**
+ * Compares the platform-thread and virtual-thread server modes
+ * (socialmedia.server.threads) under many concurrent connections. Every JMH
+ * thread keeps one request in flight against GET
+ * /accounts/1/messages?limit=20, which goes to the database on every call, so
+ * the thread count is the number of concurrent connections.
+ *
+ * Throughput mode reports requests per second and SampleTime mode reports the
+ * latency percentiles, including p0.99. Virtual threads need JDK 21, so run with
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *     -Djmh.args="ServerThreadsBenchmark -t 512 -jvm /path/to/jdk-21/bin/java"
+ * </pre>
+ *
+ * On an older JDK the virtual mode falls back to platform threads and logs a
+ * warning, and the two modes measure the same thing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(256)
+@Fork(value = 1, jvmArgsAppend = { "-Dsocialmedia.db.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+        "-Dsocialmedia.startup.explainPlans=false" })
+public class ServerThreadsBenchmark {
+
+    @Param({ "platform", "virtual" })
+    public String threads;
+
+    private Javalin app;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("socialmedia.server.threads", threads);
+        ConnectionUtil.resetTestDatabase();
+        MessageDAO messageDAO = new MessageDAO();
+        List<Message> seed = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            seed.add(new Message(1, "benchmark message " + i, 1669947792L + i));
+        }
+        messageDAO.insertMessages(seed);
+
+        app = new SocialMediaController().startAPI();
+        app.start(0);
+        // one client for all JMH threads; it opens a connection per request in
+        // flight
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + app.port() + "/accounts/1/messages?limit=20"))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        app.stop();
+    }
+
+    @Benchmark
+    public int listMessages() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("status " + response.statusCode());
+        }
+        return response.body().length();
+    }
+}
@@ -0,0 +1,73 @@
+package Bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Model.Message;
+import Model.MessagePage;
+import Service.MessageService;
+
+/**
+ * Compares the per-account listings of MessageService served from the account
+ * timelines against the SQL queries they replace, on a SeededDatabase.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="TimelineBenchmark -p messages=1000,100000 -p accounts=100"
+ * </pre>
+ *
+ * A timeline only answers a full listing, or the first page of one, when it
+ * holds every message of the account, i.e. when messages / accounts is at most
+ * socialmedia.timeline.maxMessages. Larger accounts fall back to SQL after the
+ * timeline lookup, which shows up as the cost of a miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Dsocialmedia.db.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1" })
+public class TimelineBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({ "timeline", "sql" })
+    public String source;
+
+    private MessageService messageService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("socialmedia.timeline.enabled", Boolean.toString(source.equals("timeline")));
+        messageService = new MessageService();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        messageService.close();
+        System.clearProperty("socialmedia.timeline.enabled");
+    }
+
+    @Benchmark
+    public List<Message> getMessagesByAccountId(SeededDatabase db) {
+        return messageService.getMessagesByAccountId(db.randomAccountId());
+    }
+
+    @Benchmark
+    public MessagePage getMessagesPageByAccountId(SeededDatabase db) {
+        return messageService.getMessagesPageByAccountId(db.randomAccountId(), null, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,74 @@
+package Bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Model.Account;
+import Service.AccountService;
+import Service.TokenService;
+import Util.ConnectionUtil;
+
+/**
+ * Measures what a session token costs compared with the POST /login lookup it
+ * replaces: issuing a token, verifying a valid one, rejecting a tampered one,
+ * and AccountService.postLogin against an in-memory database.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="TokenBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsocialmedia.db.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1")
+public class TokenBenchmark {
+
+    private TokenService tokenService;
+    private AccountService accountService;
+    private String token;
+    private String tampered;
+    private Account credentials;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+        tokenService = new TokenService(new byte[32], 3600);
+        accountService = new AccountService();
+        token = tokenService.issue(1);
+        tampered = token.replace("v1.1.", "v1.2.");
+        credentials = new Account("testuser1", "password");
+    }
+
+    @Benchmark
+    public String issue() {
+        return tokenService.issue(1);
+    }
+
+    @Benchmark
+    public int verifyValid() {
+        return tokenService.verify(token);
+    }
+
+    @Benchmark
+    public int verifyTampered() {
+        return tokenService.verify(tampered);
+    }
+
+    @Benchmark
+    public Account loginLookup() {
+        return accountService.postLogin(credentials);
+    }
+}
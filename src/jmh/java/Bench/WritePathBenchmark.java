@@ -0,0 +1,109 @@
+package Bench;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DAO.MessageDAO;
+import DAO.QueryRunner;
+import Model.Message;
+import Util.ConnectionUtil;
+
+/**
+ * Compares the single-statement patch and delete in MessageDAO, which return
+ * the changed row through H2's OLD TABLE, with the select, update,
+ * select and select, delete sequences they replaced.
+ *
+ * Run with
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="WritePathBenchmark"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsocialmedia.db.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1")
+public class WritePathBenchmark {
+
+    private static final String SELECT_MESSAGE = "SELECT * FROM message WHERE message_id=?";
+    private static final String UPDATE_MESSAGE_TEXT = "UPDATE message SET message_text=? WHERE message_id=?";
+    private static final String DELETE_MESSAGE = "DELETE FROM message WHERE message_id=?";
+
+    private MessageDAO messageDAO;
+    private Message patch;
+
+    /**
+     * message removed by the next delete benchmark invocation
+     */
+    private int victim;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+        messageDAO = new MessageDAO();
+        patch = new Message(1, "patched by the benchmark", 0);
+    }
+
+    /**
+     * deletes need a fresh row each time; the insert is not part of the
+     * measurement
+     */
+    @Setup(Level.Invocation)
+    public void insertVictim() {
+        victim = messageDAO.insertMessage(new Message(1, "to be deleted", 1669947792)).message_id;
+    }
+
+    @Benchmark
+    public Message patchSingleStatement() {
+        return messageDAO.updateMessageByMessageIdReturningOld(1, patch);
+    }
+
+    @Benchmark
+    public Message patchSelectUpdateSelect() {
+        if (selectMessage(1) == null) {
+            return null;
+        }
+        QueryRunner.update("bench.update", UPDATE_MESSAGE_TEXT, ps -> {
+            ps.setString(1, patch.message_text);
+            ps.setInt(2, 1);
+        });
+        return selectMessage(1);
+    }
+
+    @Benchmark
+    public Message deleteSingleStatement() {
+        return messageDAO.deleteMessageByMessageId(victim);
+    }
+
+    @Benchmark
+    public Message deleteSelectDelete() {
+        Message message = selectMessage(victim);
+        QueryRunner.update("bench.delete", DELETE_MESSAGE, ps -> ps.setInt(1, victim));
+        return message;
+    }
+
+    private static Message selectMessage(int message_id) {
+        return QueryRunner.queryOne("bench.select", SELECT_MESSAGE, ps -> ps.setInt(1, message_id),
+                WritePathBenchmark::mapMessage);
+    }
+
+    private static Message mapMessage(ResultSet rs) throws SQLException {
+        return new Message(rs.getInt("message_id"), rs.getInt("posted_by"), rs.getString("message_text"),
+                rs.getLong("time_posted_epoch"));
+    }
+}
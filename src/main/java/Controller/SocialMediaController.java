@@ -1,41 +1,294 @@
 package Controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import DAO.QueryMetrics;
+import DAO.QueryPlans;
+import DAO.QueryRunner;
+import DAO.QueryStats;
 import Model.Account;
 import Model.Message;
+import Model.MessagePage;
 import Service.AccountService;
+import Service.AsyncAccountService;
+import Service.AsyncMessageService;
+import Service.KnownAccounts;
 import Service.MessageService;
+import Service.TokenService;
+import Util.Bulkhead;
+import Util.BulkheadStats;
+import Util.CacheStats;
+import Util.Config;
+import Util.ConnectionUtil;
+import Util.GroupCommitStats;
+import Util.JsonCodec;
+import Util.PoolStats;
+import Util.PrometheusText;
+import Util.RequestMetrics;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
+import io.javalin.http.UnauthorizedResponse;
+import io.javalin.util.LoomThreadPool;
+import io.javalin.util.LoomUtil;
 
 public class SocialMediaController {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SocialMediaController.class);
+
     private AccountService accountService;
     private MessageService messageService;
-    private static ObjectMapper mapper;
+    private AsyncAccountService asyncAccountService;
+    private AsyncMessageService asyncMessageService;
+    private TokenService tokenService;
+
+    /**
+     * runs the blocking service calls so that Jetty threads are not held while
+     * JDBC waits
+     */
+    private ExecutorService dbExecutor;
+
+    /**
+     * one bulkhead per endpoint, created on first use
+     */
+    private Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    /**
+     * latency, status codes and in-flight count of every request, served on GET
+     * /metrics
+     */
+    private RequestMetrics requestMetrics = new RequestMetrics();
+    private static JsonCodec codec;
+    private static ObjectWriter streamWriter;
+
+    private static final Type MESSAGE_LIST = new TypeReference<List<Message>>() {
+    }.getType();
+
+    /**
+     * response header carrying the cursor of the next page of a listing
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * paths whose handlers never look at a session token
+     */
+    private static final Set<String> TOKENLESS_PATHS = Set.of("/login", "/register");
+
+    /**
+     * response header of POST /login carrying a session token; send it back as
+     * "Authorization: Bearer <token>"
+     */
+    public static final String AUTH_TOKEN_HEADER = "X-Auth-Token";
+
+    /**
+     * prefix of every ETag this controller hands out. Versions start over when
+     * the server restarts, so ETags from an earlier run must never match
+     */
+    private final String etagEpoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    /**
+     * context attribute holding the account_id of a request with a valid token
+     */
+    private static final String ACCOUNT_ID_ATTRIBUTE = "account_id";
+
+    /**
+     * context attribute holding the RequestMetrics.Timer started when a request
+     * arrived
+     */
+    private static final String START_TIMER_ATTRIBUTE = "metrics.startTimer";
 
     {
-        mapper = new ObjectMapper();
+        codec = new JsonCodec();
+        // flushing after every element would defeat the output buffer
+        streamWriter = codec.writer(Message.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
+    /**
+     * applies pending schema migrations before the services are created, then
+     * logs the query plan of every DAO statement unless
+     * socialmedia.startup.explainPlans is false
+     */
     public SocialMediaController() {
-        accountService = new AccountService();
-        messageService = new MessageService();
+        ConnectionUtil.migrate();
+        if (Config.getBoolean("startup.explainPlans", true)) {
+            QueryPlans.logPlans();
+        }
+        KnownAccounts knownAccounts = new KnownAccounts();
+        accountService = new AccountService(knownAccounts);
+        messageService = new MessageService(knownAccounts);
+        dbExecutor = newDbExecutor();
+        asyncAccountService = new AsyncAccountService(accountService, dbExecutor);
+        asyncMessageService = new AsyncMessageService(messageService, dbExecutor);
+        tokenService = new TokenService();
+    }
+
+    /**
+     * before handler that verifies an "Authorization: Bearer <token>" header
+     * in memory and remembers the token's account_id for the handlers. Requests
+     * without the header, and requests to "/login" and "/register", are let
+     * through unchanged, so a client holding an expired token can still get a
+     * new one
+     * 
+     * if the token is invalid or expired returns status 401
+     * 
+     * @param ctx
+     */
+    private void authenticate(Context ctx) {
+        String authorization = ctx.header("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ") || TOKENLESS_PATHS.contains(ctx.path())) {
+            return;
+        }
+        int account_id = tokenService.verify(authorization.substring("Bearer ".length()).trim());
+        if (account_id < 0) {
+            throw new UnauthorizedResponse();
+        }
+        ctx.attribute(ACCOUNT_ID_ATTRIBUTE, account_id);
+    }
+
+    /**
+     * static util function to fill in or check posted_by against the token of
+     * the request, if it has one
+     * 
+     * @param ctx
+     * @param msg
+     * @return boolean false if msg claims a poster other than the token's
+     *         account
+     */
+    private static boolean claimPoster(Context ctx, Message msg) {
+        Integer account_id = ctx.attribute(ACCOUNT_ID_ATTRIBUTE);
+        if (account_id == null || msg == null) {
+            return true;
+        }
+        if (msg.posted_by == 0) {
+            msg.posted_by = account_id;
+        }
+        return msg.posted_by == account_id;
+    }
+
+    /**
+     * the executor for the blocking service calls. With
+     * socialmedia.server.threads=virtual (on JDK 21 or later) every call gets
+     * its own virtual thread, so only the bulkheads and the connection pool
+     * limit concurrency. Otherwise it is a fixed pool of
+     * socialmedia.db.executor.threads threads, defaulting to the connection
+     * pool's maxSize, so a task that starts running finds a free connection
+     * instead of waiting for one
+     * 
+     * @return ExecutorService
+     */
+    private static ExecutorService newDbExecutor() {
+        if (virtualThreads()) {
+            return LoomUtil.INSTANCE.getExecutorService("db-executor");
+        }
+        int threads = Math.max(1, Config.getInt("db.executor.threads", Config.getInt("pool.maxSize", 10)));
+        AtomicInteger created = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "db-executor-" + created.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * the bulkhead of endpoint, limited to socialmedia.endpoint.<endpoint>.maxConcurrent
+     * calls in flight (default socialmedia.endpoint.maxConcurrent, 100) and
+     * socialmedia.endpoint.<endpoint>.timeoutMillis per call (default
+     * socialmedia.endpoint.timeoutMillis, 10000)
+     * 
+     * @param endpoint
+     * @return Bulkhead
+     */
+    private Bulkhead bulkhead(String endpoint) {
+        return bulkheads.computeIfAbsent(endpoint, name -> new Bulkhead(name,
+                Config.getInt("endpoint." + name + ".maxConcurrent", Config.getInt("endpoint.maxConcurrent", 100)),
+                Config.getLong("endpoint." + name + ".timeoutMillis",
+                        Config.getLong("endpoint.timeoutMillis", 10000))));
+    }
+
+    /**
+     * runs call through the bulkhead of endpoint and hands its result to respond
+     * once it completes, without holding the Jetty thread in the meantime
+     * 
+     * if the bulkhead is full or the call times out returns status 503
+     * if the call rejects its arguments returns status 400
+     * if the call fails otherwise returns status 500
+     * 
+     * @param ctx
+     * @param endpoint name of the endpoint's bulkhead
+     * @param call     starts the service call
+     * @param respond  writes the response from the call's result
+     */
+    private <T> void respondAsync(Context ctx, String endpoint, Supplier<CompletableFuture<T>> call,
+            Consumer<T> respond) {
+        ctx.future(() -> bulkhead(endpoint).call(call).thenAccept(respond).exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RejectedExecutionException || cause instanceof TimeoutException) {
+                ctx.status(503);
+            } else if (cause instanceof IllegalArgumentException) {
+                ctx.status(400);
+            } else {
+                LOG.error("{} failed", endpoint, cause);
+                ctx.status(500);
+            }
+            return null;
+        }));
     }
 
     /**
-     * static util function to retrieve Account objects from json string
+     * stop taking service calls, let the ones already queued finish and then
+     * flush the message service
+     */
+    private void shutdown() {
+        dbExecutor.shutdown();
+        try {
+            dbExecutor.awaitTermination(Config.getLong("endpoint.timeoutMillis", 10000), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        messageService.close();
+    }
+
+    /**
+     * static util function to retrieve Account objects from a json body
      * 
-     * @param act Json string obtained from context.body()
+     * @param act request body obtained from context.bodyInputStream()
      * @return Account
      */
-    private static Account readAccount(String act) {
+    private static Account readAccount(InputStream act) {
         Account account = null;
         try {
-            account = mapper.readValue(act, Account.class);
+            account = codec.fromJsonStream(act, Account.class);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -43,21 +296,428 @@ public class SocialMediaController {
     }
 
     /**
-     * static util function to retrieve Message objects from json string
+     * static util function to retrieve Message objects from a json body
      * 
-     * @param msg Json string obtained from context.body()
+     * @param msg request body obtained from context.bodyInputStream()
      * @return Message
      */
-    private static Message readMessage(String msg) {
+    private static Message readMessage(InputStream msg) {
         Message message = null;
         try {
-            message = mapper.readValue(msg, Message.class);
+            message = codec.fromJsonStream(msg, Message.class);
         } catch (Exception e) {
             e.printStackTrace();
         }
         return message;
     }
 
+    /**
+     * static util function to retrieve a list of Message objects from a json
+     * array body
+     * 
+     * @param msgs request body obtained from context.bodyInputStream()
+     * @return List<Message> null if msgs is not a json array of messages
+     */
+    private static List<Message> readMessages(InputStream msgs) {
+        List<Message> messages = null;
+        try {
+            messages = codec.fromJsonStream(msgs, MESSAGE_LIST);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return messages;
+    }
+
+    /**
+     * static util function to read the "limit" query parameter of a paginated
+     * listing
+     * 
+     * @param ctx
+     * @return int the requested page size, the default page size if only "after"
+     *         was given, or -1 if the client did not ask for a page
+     * @throws IllegalArgumentException if limit is not a positive integer
+     */
+    private static int readPageLimit(Context ctx) {
+        String limit = ctx.queryParam("limit");
+        if (limit == null) {
+            return ctx.queryParam("after") == null ? -1 : MessageService.DEFAULT_PAGE_LIMIT;
+        }
+        int pageLimit = Integer.parseInt(limit);
+        if (pageLimit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return pageLimit;
+    }
+
+    /**
+     * static util function to read the "since" or "until" query parameter of a
+     * time range listing
+     * 
+     * @param ctx
+     * @param name
+     * @param defaultValue returned if the parameter is absent
+     * @return long the parameter as a time_posted_epoch
+     * @throws IllegalArgumentException if the parameter is not an integer
+     */
+    private static long readEpoch(Context ctx, String name, long defaultValue) {
+        String epoch = ctx.queryParam(name);
+        return epoch == null ? defaultValue : Long.parseLong(epoch);
+    }
+
+    /**
+     * static util function to check for the "since" and "until" query
+     * parameters
+     * 
+     * @param ctx
+     * @return boolean true if the client asked for a time range
+     */
+    private static boolean wantsTimeRange(Context ctx) {
+        return ctx.queryParam("since") != null || ctx.queryParam("until") != null;
+    }
+
+    /**
+     * writes a page as a json list, with the cursor of the next page in the
+     * X-Next-Cursor header when there is one
+     * 
+     * @param ctx
+     * @param page
+     */
+    private static void writePage(Context ctx, MessagePage page) {
+        if (page.next_cursor != null) {
+            ctx.header(NEXT_CURSOR_HEADER, page.next_cursor);
+        }
+        ctx.json(page.messages);
+        ctx.status(200);
+    }
+
+    /**
+     * static util function to read the "stream" query parameter
+     * 
+     * @param ctx
+     * @return boolean true if the client asked for a streamed listing
+     */
+    private static boolean wantsStream(Context ctx) {
+        return Boolean.parseBoolean(ctx.queryParam("stream"));
+    }
+
+    /**
+     * @param version version of the resource, taken before it is read
+     * @return String a strong ETag for the resource at version
+     */
+    private String etag(long version) {
+        return etag(version, "");
+    }
+
+    /**
+     * @param version version of the resource, taken before it is read
+     * @param variant what part or form of the resource the response holds, e.g.
+     *                from listingVariant. Empty for the whole resource
+     * @return String a strong ETag for that representation of the resource at
+     *         version
+     */
+    private String etag(long version, String variant) {
+        if (variant.isEmpty()) {
+            return "\"" + etagEpoch + "-" + version + "\"";
+        }
+        // base64url keeps client supplied cursors inside the ETag character set
+        String encoded = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(variant.getBytes(StandardCharsets.UTF_8));
+        return "\"" + etagEpoch + "-" + version + "-" + encoded + "\"";
+    }
+
+    /**
+     * static util function to describe which representation of a listing a
+     * request asks for, so that each page, time range and form gets its own
+     * ETag
+     * 
+     * @param ctx
+     * @param limit page limit read with readPageLimit
+     * @param since
+     * @param until
+     * @return String empty for the full listing
+     */
+    private static String listingVariant(Context ctx, int limit, long since, long until) {
+        String after = ctx.queryParam("after");
+        if (wantsTimeRange(ctx)) {
+            return "range:" + since + ":" + until + ":" + limit + ":" + (after == null ? "" : after);
+        }
+        if (limit > 0) {
+            return "page:" + limit + ":" + (after == null ? "" : after);
+        }
+        return wantsStream(ctx) ? "stream" : "";
+    }
+
+    /**
+     * answers a conditional GET from memory: if the If-None-Match header lists
+     * etag, sets status 304 with the ETag and no body
+     * 
+     * @param ctx
+     * @param etag current ETag of the resource
+     * @return boolean true if the response is complete
+     */
+    private static boolean notModified(Context ctx, String etag) {
+        String ifNoneMatch = ctx.header("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            // If-None-Match compares weakly, so W/ is ignored
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag)) {
+                ctx.header("ETag", etag);
+                ctx.status(304);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * a source of messages that pushes each one into a sink
+     */
+    @FunctionalInterface
+    private interface MessageSource {
+        boolean streamTo(QueryRunner.Sink<Message> sink) throws IOException;
+    }
+
+    /**
+     * writes a json list straight from the database to the response body, one
+     * message at a time, so memory use does not grow with the number of rows
+     * 
+     * @param ctx
+     * @param source
+     * @throws IOException
+     */
+    private static void writeStream(Context ctx, MessageSource source) throws IOException {
+        ctx.status(200);
+        ctx.contentType("application/json");
+        try (JsonGenerator generator = streamWriter.createGenerator(ctx.outputStream())) {
+            generator.writeStartArray();
+            source.streamTo(message -> streamWriter.writeValue(generator, message));
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * @return boolean true if socialmedia.server.threads is "virtual" and the
+     *         runtime has virtual threads
+     */
+    private static boolean virtualThreads() {
+        return "virtual".equalsIgnoreCase(Config.getString("server.threads", "platform"))
+                && LoomUtil.INSTANCE.getLoomAvailable();
+    }
+
+    /**
+     * picks the pool Jetty runs handlers on from socialmedia.server.threads.
+     * "platform" (the default) is a bounded pool of socialmedia.server.maxThreads
+     * platform threads. "virtual" runs every request on its own virtual thread,
+     * which needs JDK 21 or later. The service calls then run on virtual threads
+     * too (see newDbExecutor), so no platform thread is held while JDBC blocks
+     * and the bulkheads and the connection pool are the only concurrency limits
+     * 
+     * @return ThreadPool
+     */
+    private static ThreadPool serverThreadPool() {
+        String mode = Config.getString("server.threads", "platform");
+        if (virtualThreads()) {
+            return new LoomThreadPool("JettyServerThreadPool");
+        } else if ("virtual".equalsIgnoreCase(mode)) {
+            LOG.warn("socialmedia.server.threads=virtual needs JDK 21 or later; using platform threads on {}",
+                    System.getProperty("java.version"));
+        } else if (!"platform".equalsIgnoreCase(mode)) {
+            LOG.warn("Unknown socialmedia.server.threads={}; using platform threads", mode);
+        }
+        QueuedThreadPool pool = new QueuedThreadPool(Config.getInt("server.maxThreads", 250), 8, 60000);
+        pool.setName("JettyServerThreadPool");
+        return pool;
+    }
+
+    /**
+     * before handler that marks the request as in flight and remembers when it
+     * arrived
+     * 
+     * @param ctx
+     */
+    private void startRequestTimer(Context ctx) {
+        ctx.attribute(START_TIMER_ATTRIBUTE, requestMetrics.begin());
+    }
+
+    /**
+     * after handler that records the latency and status code of the request
+     * under the route it matched. For a handler that returned a future this
+     * runs once the future has completed
+     * 
+     * @param ctx
+     */
+    private void recordRequest(Context ctx) {
+        RequestMetrics.Timer timer = ctx.attribute(START_TIMER_ATTRIBUTE);
+        if (timer != null) {
+            requestMetrics.end(ctx.method().name(), ctx.endpointHandlerPath(), ctx.statusCode(), timer);
+        }
+    }
+
+    /**
+     * handler for GET request on "/metrics"
+     * returns request, connection pool, DAO query, cache, group commit and
+     * bulkhead statistics in the Prometheus text format
+     * 
+     * always returns status 200
+     * 
+     * @param ctx
+     */
+    private void getMetricsHandler(Context ctx) {
+        PrometheusText text = new PrometheusText();
+        writeRequestMetrics(text);
+        writePoolMetrics(text, ConnectionUtil.getPoolStats());
+        writeQueryMetrics(text, QueryMetrics.getStats());
+        writeCacheMetrics(text, "message", messageService.getMessageCacheStats());
+        CacheStats timelineStats = messageService.getTimelineCacheStats();
+        if (timelineStats != null) {
+            writeCacheMetrics(text, "timeline", timelineStats);
+        }
+        GroupCommitStats groupCommitStats = messageService.getGroupCommitStats();
+        if (groupCommitStats != null) {
+            writeGroupCommitMetrics(text, groupCommitStats);
+        }
+        writeBulkheadMetrics(text);
+        ctx.contentType(PrometheusText.CONTENT_TYPE);
+        ctx.result(text.toString());
+        ctx.status(200);
+    }
+
+    private void writeRequestMetrics(PrometheusText text) {
+        text.family("socialmedia_http_requests_in_flight", "gauge", "HTTP requests being handled");
+        text.sample("socialmedia_http_requests_in_flight", "", requestMetrics.getInFlight());
+        text.family("socialmedia_http_request_duration_seconds", "summary",
+                "HTTP request latency by route, from arrival until the response is ready");
+        requestMetrics.forEachRoute((method, route, micros, statusCounts) -> text.summary(
+                "socialmedia_http_request_duration_seconds", PrometheusText.labels("method", method, "route", route),
+                micros, 1e6));
+        text.family("socialmedia_http_requests_total", "counter", "HTTP requests by route and status code");
+        requestMetrics.forEachRoute((method, route, micros, statusCounts) -> {
+            for (int status = 0; status < statusCounts.length; status++) {
+                if (statusCounts[status] > 0) {
+                    text.sample("socialmedia_http_requests_total", PrometheusText.labels("method", method, "route",
+                            route, "status", Integer.toString(status)), statusCounts[status]);
+                }
+            }
+        });
+    }
+
+    private static void writePoolMetrics(PrometheusText text, PoolStats stats) {
+        text.family("socialmedia_db_pool_connections", "gauge", "pooled database connections by state");
+        text.sample("socialmedia_db_pool_connections", PrometheusText.labels("state", "active"), stats.getActive());
+        text.sample("socialmedia_db_pool_connections", PrometheusText.labels("state", "idle"), stats.getIdle());
+        text.family("socialmedia_db_pool_max_connections", "gauge", "most connections the pool opens");
+        text.sample("socialmedia_db_pool_max_connections", "", stats.getMaxSize());
+        text.family("socialmedia_db_pool_waiters", "gauge", "threads waiting for a connection");
+        text.sample("socialmedia_db_pool_waiters", "", stats.getWaiters());
+        counter(text, "socialmedia_db_pool_acquired_total", "connections handed out", stats.getAcquired());
+        counter(text, "socialmedia_db_pool_timeouts_total", "borrows that timed out", stats.getTimeouts());
+        counter(text, "socialmedia_db_pool_created_total", "connections opened", stats.getCreated());
+        counter(text, "socialmedia_db_pool_destroyed_total", "connections closed", stats.getDestroyed());
+        counter(text, "socialmedia_db_pool_leaks_detected_total", "connections held past the leak threshold",
+                stats.getLeaksDetected());
+        counter(text, "socialmedia_db_pool_reclaimed_statements_total", "statements closed on return",
+                stats.getReclaimedStatements());
+        counter(text, "socialmedia_db_statement_cache_hits_total", "prepared statements reused",
+                stats.getStatementCacheHits());
+        counter(text, "socialmedia_db_statement_cache_misses_total", "prepared statements created",
+                stats.getStatementCacheMisses());
+        counter(text, "socialmedia_db_statement_cache_evictions_total", "prepared statements evicted",
+                stats.getStatementCacheEvictions());
+        text.family("socialmedia_db_pool_acquire_seconds", "summary", "time spent waiting for a connection");
+        text.summary("socialmedia_db_pool_acquire_seconds", "", stats.getAcquireMicros(), 1e6);
+    }
+
+    private static void writeQueryMetrics(PrometheusText text, List<QueryStats> stats) {
+        text.family("socialmedia_db_query_seconds", "summary",
+                "DAO query time by query and phase: acquire a connection, execute, map rows");
+        for (QueryStats query : stats) {
+            text.summary("socialmedia_db_query_seconds",
+                    PrometheusText.labels("query", query.getName(), "phase", "acquire"), query.getAcquireMicros(), 1e6);
+            text.summary("socialmedia_db_query_seconds",
+                    PrometheusText.labels("query", query.getName(), "phase", "execute"), query.getExecuteMicros(), 1e6);
+            text.summary("socialmedia_db_query_seconds",
+                    PrometheusText.labels("query", query.getName(), "phase", "map"), query.getMapMicros(), 1e6);
+        }
+        text.family("socialmedia_db_queries_total", "counter", "DAO queries run");
+        for (QueryStats query : stats) {
+            text.sample("socialmedia_db_queries_total", PrometheusText.labels("query", query.getName()),
+                    query.getCalls());
+        }
+        text.family("socialmedia_db_query_errors_total", "counter", "DAO queries that failed");
+        for (QueryStats query : stats) {
+            text.sample("socialmedia_db_query_errors_total", PrometheusText.labels("query", query.getName()),
+                    query.getErrors());
+        }
+        text.family("socialmedia_db_slow_queries_total", "counter",
+                "DAO queries above socialmedia.slowQuery.thresholdMillis");
+        for (QueryStats query : stats) {
+            text.sample("socialmedia_db_slow_queries_total", PrometheusText.labels("query", query.getName()),
+                    query.getSlow());
+        }
+    }
+
+    /**
+     * @param text
+     * @param item  what the cache holds, e.g. "message"
+     * @param stats
+     */
+    private static void writeCacheMetrics(PrometheusText text, String item, CacheStats stats) {
+        String prefix = "socialmedia_" + item + "_cache";
+        text.family(prefix + "_size", "gauge", item + "s in the cache");
+        text.sample(prefix + "_size", "", stats.getSize());
+        counter(text, prefix + "_hits_total", item + " lookups served from the cache", stats.getHits());
+        counter(text, prefix + "_misses_total", item + " lookups that went to the database", stats.getMisses());
+        counter(text, prefix + "_evictions_total", item + "s evicted to make room", stats.getEvictions());
+        counter(text, prefix + "_expirations_total", item + "s dropped after their time to live",
+                stats.getExpirations());
+    }
+
+    private static void writeGroupCommitMetrics(PrometheusText text, GroupCommitStats stats) {
+        text.family("socialmedia_group_commit_queued", "gauge", "message posts waiting for the writer");
+        text.sample("socialmedia_group_commit_queued", "", stats.getQueued());
+        counter(text, "socialmedia_group_commit_submitted_total", "message posts submitted", stats.getSubmitted());
+        counter(text, "socialmedia_group_commit_flushes_total", "groups written", stats.getFlushes());
+        counter(text, "socialmedia_group_commit_failed_flushes_total", "groups that failed as a batch",
+                stats.getFailedFlushes());
+        text.family("socialmedia_group_commit_flush_size", "summary", "message posts per group");
+        text.summary("socialmedia_group_commit_flush_size", "", stats.getFlushSizes(), 1);
+        text.family("socialmedia_group_commit_flush_seconds", "summary", "time to write one group");
+        text.summary("socialmedia_group_commit_flush_seconds", "", stats.getFlushMicros(), 1e6);
+    }
+
+    private void writeBulkheadMetrics(PrometheusText text) {
+        Map<String, BulkheadStats> stats = new TreeMap<>();
+        bulkheads.forEach((endpoint, bulkhead) -> stats.put(endpoint, bulkhead.getStats()));
+        bulkheadFamily(text, stats, "socialmedia_bulkhead_active", "gauge", "service calls in flight by endpoint",
+                BulkheadStats::getActive);
+        bulkheadFamily(text, stats, "socialmedia_bulkhead_max_concurrent", "gauge",
+                "most service calls allowed in flight", BulkheadStats::getMaxConcurrent);
+        bulkheadFamily(text, stats, "socialmedia_bulkhead_calls_total", "counter", "service calls that got a permit",
+                BulkheadStats::getCalls);
+        bulkheadFamily(text, stats, "socialmedia_bulkhead_rejected_total", "counter",
+                "service calls turned away with 503", BulkheadStats::getRejected);
+        bulkheadFamily(text, stats, "socialmedia_bulkhead_timeouts_total", "counter",
+                "service calls that timed out with 503", BulkheadStats::getTimeouts);
+    }
+
+    private static void bulkheadFamily(PrometheusText text, Map<String, BulkheadStats> stats, String name,
+            String type, String help, ToLongFunction<BulkheadStats> value) {
+        text.family(name, type, help);
+        stats.forEach((endpoint, endpointStats) -> text.sample(name, PrometheusText.labels("endpoint", endpoint),
+                value.applyAsLong(endpointStats)));
+    }
+
+    private static void counter(PrometheusText text, String name, String help, long value) {
+        text.family(name, "counter", help);
+        text.sample(name, "", value);
+    }
+
     /**
      * In order for the test cases to work, you will need to write the endpoints in
      * the startAPI() method, as the test
@@ -67,10 +727,33 @@ public class SocialMediaController {
      *         controller.
      */
     public Javalin startAPI() {
-        Javalin app = Javalin.create();
+        Javalin app = Javalin.create(config -> {
+            config.jetty.server(() -> new Server(serverThreadPool()));
+            config.jsonMapper(codec);
+        });
+        // queued service calls and group-commit writes finish before the server
+        // goes away
+        app.events(event -> event.serverStopping(this::shutdown));
+        if (Config.getBoolean("metrics.enabled", true)) {
+            // registered first and last, so the time covers every other handler
+            app.events(event -> event.handlerAdded(handler -> {
+                if (handler.getHttpMethod().isHttpMethod()) {
+                    requestMetrics.register(handler.getHttpMethod().name(), handler.getPath());
+                }
+            }));
+            app.before(this::startRequestTimer);
+            app.after(this::recordRequest);
+            app.get("/metrics", this::getMetricsHandler);
+        }
+        app.before(this::authenticate);
         app.get("/messages", this::getAllMessagesHandler);
         app.post("/messages", this::postMessageHandler);
+        app.post("/messages/batch", this::postMessagesBatchHandler);
 
+        // registered before /messages/{message_id}, which would match it too
+        if (messageService.isSearchEnabled()) {
+            app.get("/messages/search", this::searchMessagesHandler);
+        }
         app.get("/messages/{message_id}", this::getMessageByMessageIdHandler);
         app.patch("/messages/{message_id}", this::patchMessageByMessageIdAndMessageHandler);
         app.delete("/messages/{message_id}", this::deleteMessageByMessageIdHandler);
@@ -87,14 +770,56 @@ public class SocialMediaController {
      * retrieves all messages
      * empty request body
      * 
-     * always returns status 200
+     * optional query parameters "limit" and "after" retrieve one page at a time
+     * in message_id order; the cursor for the next page is returned in the
+     * X-Next-Cursor header
+     * optional query parameter "stream=true" streams the full listing from the
+     * database to the response without buffering it
+     * optional query parameters "since" and "until" restrict the listing to
+     * since <= time_posted_epoch < until; such a listing is always paged, in
+     * time_posted_epoch order
+     * 
+     * if limit, after, since or until is illformed returns status 400
+     * otherwise returns status 200
      * 
      * @param ctx
+     * @throws IOException
      */
-    private void getAllMessagesHandler(Context ctx) {
-        List<Message> messages = messageService.getAllMessages();
-        ctx.json(messages);
-        ctx.status(200);
+    private void getAllMessagesHandler(Context ctx) throws IOException {
+        int limit;
+        long since;
+        long until;
+        try {
+            limit = readPageLimit(ctx);
+            since = readEpoch(ctx, "since", Long.MIN_VALUE);
+            until = readEpoch(ctx, "until", Long.MAX_VALUE);
+        } catch (IllegalArgumentException e) {
+            ctx.status(400);
+            return;
+        }
+        if (wantsTimeRange(ctx)) {
+            int pageLimit = limit > 0 ? limit : MessageService.DEFAULT_PAGE_LIMIT;
+            String after = ctx.queryParam("after");
+            respondAsync(ctx, "getMessages",
+                    () -> asyncMessageService.getMessagesPageInTimeRange(since, until, after, pageLimit),
+                    page -> writePage(ctx, page));
+            return;
+        }
+        if (limit > 0) {
+            String after = ctx.queryParam("after");
+            respondAsync(ctx, "getMessages", () -> asyncMessageService.getMessagesPage(after, limit),
+                    page -> writePage(ctx, page));
+            return;
+        }
+        // a stream writes to the response as it reads, so it stays on this thread
+        if (wantsStream(ctx)) {
+            writeStream(ctx, messageService::streamAllMessages);
+            return;
+        }
+        respondAsync(ctx, "getMessages", asyncMessageService::getAllMessages, messages -> {
+            ctx.json(messages);
+            ctx.status(200);
+        });
     }
 
     /**
@@ -105,17 +830,98 @@ public class SocialMediaController {
      * if the text of the message is illformed returns status 400
      * if the poster is not in account table returns status 400
      * 
+     * with a session token posted_by may be left out and defaults to the
+     * token's account; a different posted_by returns status 403
+     * 
      * @param ctx
      */
     private void postMessageHandler(Context ctx) {
-        Message msg = readMessage(ctx.body());
-        Message postedMessage = messageService.postMessage(msg);
-        if (postedMessage != null) {
-            ctx.json(postedMessage);
+        Message msg = readMessage(ctx.bodyInputStream());
+        if (!claimPoster(ctx, msg)) {
+            ctx.status(403);
+            return;
+        }
+        respondAsync(ctx, "postMessage", () -> asyncMessageService.postMessage(msg), postedMessage -> {
+            if (postedMessage != null) {
+                ctx.json(postedMessage);
+                ctx.status(200);
+            } else {
+                ctx.status(400);
+            }
+        });
+    }
+
+    /**
+     * handler for POST request on "/messages/batch"
+     * creates a new entry in message table for every valid message
+     * request body contains a json array of messages
+     * 
+     * if the body is not a non-empty json array returns status 400
+     * if the array holds more than socialmedia.batch.maxSize messages returns
+     * status 413
+     * otherwise returns status 200 with one result per message, holding either
+     * its new message_id or the reason it was rejected
+     * 
+     * with a session token posted_by may be left out and defaults to the
+     * token's account; if any message names a different posted_by returns
+     * status 403
+     * 
+     * @param ctx
+     */
+    private void postMessagesBatchHandler(Context ctx) {
+        List<Message> msgs = readMessages(ctx.bodyInputStream());
+        if (msgs == null || msgs.isEmpty()) {
+            ctx.status(400);
+            return;
+        }
+        if (msgs.size() > MessageService.MAX_BATCH_SIZE) {
+            ctx.status(413);
+            return;
+        }
+        for (Message msg : msgs) {
+            if (!claimPoster(ctx, msg)) {
+                ctx.status(403);
+                return;
+            }
+        }
+        respondAsync(ctx, "postMessagesBatch", () -> asyncMessageService.postMessages(msgs), results -> {
+            ctx.json(results);
             ctx.status(200);
-        } else {
+        });
+    }
+
+    /**
+     * handler for GET request on "/messages/search"
+     * retrieves the messages whose text contains every word of the "q" query
+     * parameter, in message_id order; case and punctuation are ignored
+     * empty request body
+     * 
+     * optional query parameters "limit" and "after" page through the results
+     * like the listings; without a limit at most the default page size is
+     * returned
+     * 
+     * if q has no words, or limit or after is illformed returns status 400
+     * otherwise returns status 200
+     * 
+     * @param ctx
+     */
+    private void searchMessagesHandler(Context ctx) {
+        String query = ctx.queryParam("q");
+        int limit;
+        try {
+            limit = readPageLimit(ctx);
+        } catch (IllegalArgumentException e) {
             ctx.status(400);
+            return;
         }
+        if (query == null) {
+            ctx.status(400);
+            return;
+        }
+        int pageLimit = limit > 0 ? limit : MessageService.DEFAULT_PAGE_LIMIT;
+        String after = ctx.queryParam("after");
+        respondAsync(ctx, "searchMessages", () -> asyncMessageService.searchMessages(query, after, pageLimit),
+                page -> writePage(ctx, page));
     }
 
     /**
@@ -123,17 +929,26 @@ public class SocialMediaController {
      * retrieves the message with message_id if it exists
      * empty request body
      * 
-     * always return status 200
+     * the response carries an ETag; a request whose If-None-Match header lists
+     * it returns status 304 without reading the message
+     * 
+     * otherwise always return status 200
      * 
      * @param ctx
      */
     private void getMessageByMessageIdHandler(Context ctx) {
         int message_id = Integer.parseInt(ctx.pathParam("message_id"));
-        Message message = messageService.getMessageByMessageId(message_id);
-        if (message != null) {
-            ctx.json(message);
+        String etag = etag(messageService.getMessageVersion(message_id));
+        if (notModified(ctx, etag)) {
+            return;
         }
-        ctx.status(200);
+        respondAsync(ctx, "getMessage", () -> asyncMessageService.getMessageByMessageId(message_id), message -> {
+            ctx.header("ETag", etag);
+            if (message != null) {
+                ctx.json(message);
+            }
+            ctx.status(200);
+        });
     }
 
     /**
@@ -149,14 +964,16 @@ public class SocialMediaController {
      */
     private void patchMessageByMessageIdAndMessageHandler(Context ctx) {
         int message_id = Integer.parseInt(ctx.pathParam("message_id"));
-        Message msg = readMessage(ctx.body());
-        Message patchedMessage = messageService.patchMessageByMessageIdAndMessage(message_id, msg);
-        if (patchedMessage != null) {
-            ctx.json(patchedMessage);
-            ctx.status(200);
-        } else {
-            ctx.status(400);
-        }
+        Message msg = readMessage(ctx.bodyInputStream());
+        respondAsync(ctx, "patchMessage", () -> asyncMessageService.patchMessageByMessageIdAndMessage(message_id, msg),
+                patchedMessage -> {
+                    if (patchedMessage != null) {
+                        ctx.json(patchedMessage);
+                        ctx.status(200);
+                    } else {
+                        ctx.status(400);
+                    }
+                });
     }
 
     /**
@@ -170,11 +987,12 @@ public class SocialMediaController {
      */
     private void deleteMessageByMessageIdHandler(Context ctx) {
         int message_id = Integer.parseInt(ctx.pathParam("message_id"));
-        Message msg = messageService.deleteMessageByMessageId(message_id);
-        if (msg != null) {
-            ctx.json(msg);
-        }
-        ctx.status(200);
+        respondAsync(ctx, "deleteMessage", () -> asyncMessageService.deleteMessageByMessageId(message_id), msg -> {
+            if (msg != null) {
+                ctx.json(msg);
+            }
+            ctx.status(200);
+        });
     }
 
     /**
@@ -182,15 +1000,73 @@ public class SocialMediaController {
      * retrieves all messages posted by account_id
      * empty request body
      * 
-     * always returns status 200
+     * optional query parameters "limit" and "after" retrieve one page at a time
+     * in message_id order; the cursor for the next page is returned in the
+     * X-Next-Cursor header
+     * optional query parameter "stream=true" streams the full listing from the
+     * database to the response without buffering it
+     * optional query parameters "since" and "until" restrict the listing to
+     * since <= time_posted_epoch < until; such a listing is always paged, in
+     * time_posted_epoch order
+     * the response carries an ETag for the page, time range or form asked for;
+     * a request whose If-None-Match header lists it returns status 304 without
+     * reading the messages
+     * 
+     * if limit, after, since or until is illformed returns status 400
+     * otherwise returns status 200
      * 
      * @param ctx
+     * @throws IOException
      */
-    private void getMessagesByAccountIdHandler(Context ctx) {
+    private void getMessagesByAccountIdHandler(Context ctx) throws IOException {
         int account_id = Integer.parseInt(ctx.pathParam("account_id"));
-        List<Message> messages = messageService.getMessagesByAccountId(account_id);
-        ctx.json(messages);
-        ctx.status(200);
+        long version = messageService.getAccountMessagesVersion(account_id);
+        int limit;
+        long since;
+        long until;
+        try {
+            limit = readPageLimit(ctx);
+            since = readEpoch(ctx, "since", Long.MIN_VALUE);
+            until = readEpoch(ctx, "until", Long.MAX_VALUE);
+        } catch (IllegalArgumentException e) {
+            ctx.status(400);
+            return;
+        }
+        String etag = etag(version, listingVariant(ctx, limit, since, until));
+        if (notModified(ctx, etag)) {
+            return;
+        }
+        if (wantsTimeRange(ctx)) {
+            int pageLimit = limit > 0 ? limit : MessageService.DEFAULT_PAGE_LIMIT;
+            String after = ctx.queryParam("after");
+            respondAsync(ctx, "getAccountMessages", () -> asyncMessageService
+                    .getMessagesPageByAccountIdInTimeRange(account_id, since, until, after, pageLimit), page -> {
+                        ctx.header("ETag", etag);
+                        writePage(ctx, page);
+                    });
+            return;
+        }
+        if (limit > 0) {
+            String after = ctx.queryParam("after");
+            respondAsync(ctx, "getAccountMessages",
+                    () -> asyncMessageService.getMessagesPageByAccountId(account_id, after, limit), page -> {
+                        ctx.header("ETag", etag);
+                        writePage(ctx, page);
+                    });
+            return;
+        }
+        // a stream writes to the response as it reads, so it stays on this thread
+        if (wantsStream(ctx)) {
+            ctx.header("ETag", etag);
+            writeStream(ctx, sink -> messageService.streamMessagesByAccountId(account_id, sink));
+            return;
+        }
+        respondAsync(ctx, "getAccountMessages", () -> asyncMessageService.getMessagesByAccountId(account_id),
+                messages -> {
+                    ctx.header("ETag", etag);
+                    ctx.json(messages);
+                    ctx.status(200);
+                });
     }
 
     /**
@@ -204,14 +1080,15 @@ public class SocialMediaController {
      * @param ctx
      */
     private void postRegisterHandler(Context ctx) {
-        Account act = readAccount(ctx.body());
-        Account registeredAccount = accountService.postRegister(act);
-        if (registeredAccount != null) {
-            ctx.json(registeredAccount);
-            ctx.status(200);
-        } else {
-            ctx.status(400);
-        }
+        Account act = readAccount(ctx.bodyInputStream());
+        respondAsync(ctx, "register", () -> asyncAccountService.postRegister(act), registeredAccount -> {
+            if (registeredAccount != null) {
+                ctx.json(registeredAccount);
+                ctx.status(200);
+            } else {
+                ctx.status(400);
+            }
+        });
     }
 
     /**
@@ -221,18 +1098,23 @@ public class SocialMediaController {
      * 
      * if the username does not exist returns status 401
      * if the password does not match return sstatus 401
+     * otherwise returns status 200 with a session token in the X-Auth-Token
+     * header, which other endpoints accept for its lifetime instead of a new
+     * login
      * 
      * @param ctx
      */
     private void postLoginHandler(Context ctx) {
-        Account act = readAccount(ctx.body());
-        Account loggedinAccount = accountService.postLogin(act);
-        if (loggedinAccount != null) {
-            ctx.json(loggedinAccount);
-            ctx.status(200);
-        } else {
-            ctx.status(401);
-        }
+        Account act = readAccount(ctx.bodyInputStream());
+        respondAsync(ctx, "login", () -> asyncAccountService.postLogin(act), loggedinAccount -> {
+            if (loggedinAccount != null) {
+                ctx.header(AUTH_TOKEN_HEADER, tokenService.issue(loggedinAccount.account_id));
+                ctx.json(loggedinAccount);
+                ctx.status(200);
+            } else {
+                ctx.status(401);
+            }
+        });
     }
 
-}
\ No newline at end of file
+}
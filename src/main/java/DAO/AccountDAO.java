@@ -1,87 +1,122 @@
 package DAO;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
+import java.io.IOException;
 import java.sql.ResultSet;
-import java.sql.Statement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import Model.Account;
-import Util.ConnectionUtil;
 
 public class AccountDAO {
 
+    static final String SELECT_ACCOUNT_BY_USERNAME = "SELECT * FROM account WHERE username=?";
+    static final String SELECT_ACCOUNT_BY_ACCOUNT_ID = "SELECT * FROM account WHERE account_id=?";
+    static final String INSERT_ACCOUNT = "INSERT INTO account (username, password) VALUES (?, ?)";
+    // one array parameter, so any number of ids shares a single statement
+    static final String SELECT_EXISTING_ACCOUNT_IDS = "SELECT account_id FROM account WHERE account_id = ANY(?)";
+    static final String SELECT_ALL_ACCOUNT_IDS = "SELECT account_id FROM account";
+    static final String SELECT_ALL_USERNAMES = "SELECT username FROM account";
+
+    /**
+     * every statement this DAO runs, for startup plan checks
+     */
+    static final List<String> QUERIES = List.of(
+            SELECT_ACCOUNT_BY_USERNAME,
+            SELECT_ACCOUNT_BY_ACCOUNT_ID,
+            INSERT_ACCOUNT,
+            SELECT_EXISTING_ACCOUNT_IDS,
+            SELECT_ALL_ACCOUNT_IDS,
+            SELECT_ALL_USERNAMES);
+
+    /**
+     * maps the current row of rs to an Account
+     *
+     * @param rs
+     * @return Account
+     * @throws SQLException
+     */
+    private static Account mapAccount(ResultSet rs) throws SQLException {
+        return new Account(rs.getInt("account_id"), rs.getString("username"), rs.getString("password"));
+    }
+
     /**
      * select the account with username
-     * 
+     *
      * @param username
      * @return Account the account with username. Null if username does not exist
      */
     public Account selectAccountByUsername(String username) {
-        Connection connection = ConnectionUtil.getConnection();
-        Account account = null;
-        try {
-            // select statement
-            String sql = "SELECT * FROM account WHERE username=?";
-            PreparedStatement ps = connection.prepareStatement(sql);
-            ps.setString(1, username);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                account = new Account(rs.getInt("account_id"), rs.getString("username"), rs.getString("password"));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return account;
+        return QueryRunner.queryOne("AccountDAO.selectAccountByUsername", SELECT_ACCOUNT_BY_USERNAME,
+                ps -> ps.setString(1, username), AccountDAO::mapAccount);
     }
 
     /**
      * select the account with account_id
-     * 
+     *
      * @param account_id
      * @return Account the account with account_id. Null if account_id does not
      *         exist
      */
     public Account selectAccountByAccountId(int account_id) {
-        Connection connection = ConnectionUtil.getConnection();
-        Account account = null;
-        try {
-            // select statement
-            String sql = "SELECT * FROM account WHERE account_id=?";
-            PreparedStatement ps = connection.prepareStatement(sql);
-            ps.setInt(1, account_id);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                account = new Account(rs.getInt("account_id"), rs.getString("username"), rs.getString("password"));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        return QueryRunner.queryOne("AccountDAO.selectAccountByAccountId", SELECT_ACCOUNT_BY_ACCOUNT_ID,
+                ps -> ps.setInt(1, account_id), AccountDAO::mapAccount);
+    }
+
+    /**
+     * select which of account_ids exist in the account table
+     *
+     * @param account_ids
+     * @return Set<Integer> the account_ids that exist. Empty set if none exist
+     */
+    public Set<Integer> selectExistingAccountIds(Collection<Integer> account_ids) {
+        if (account_ids.isEmpty()) {
+            return new HashSet<>();
         }
-        return account;
+        Integer[] ids = account_ids.toArray(new Integer[0]);
+        return new HashSet<>(QueryRunner.queryList("AccountDAO.selectExistingAccountIds",
+                SELECT_EXISTING_ACCOUNT_IDS, ps -> ps.setObject(1, ids), rs -> rs.getInt("account_id")));
+    }
+
+    /**
+     * streams every account_id in the account table to sink without collecting
+     * them in memory
+     *
+     * @param sink receives each account_id as it is read
+     * @return boolean true if every account_id was delivered
+     * @throws IOException if sink fails
+     */
+    public boolean streamAccountIds(QueryRunner.Sink<Integer> sink) throws IOException {
+        return QueryRunner.stream("AccountDAO.streamAccountIds", SELECT_ALL_ACCOUNT_IDS, QueryRunner.NO_PARAMETERS,
+                1000, rs -> rs.getInt("account_id"), sink);
+    }
+
+    /**
+     * streams every username in the account table to sink without collecting
+     * them in memory
+     *
+     * @param sink receives each username as it is read
+     * @return boolean true if every username was delivered
+     * @throws IOException if sink fails
+     */
+    public boolean streamUsernames(QueryRunner.Sink<String> sink) throws IOException {
+        return QueryRunner.stream("AccountDAO.streamUsernames", SELECT_ALL_USERNAMES, QueryRunner.NO_PARAMETERS,
+                1000, rs -> rs.getString("username"), sink);
     }
 
     /**
      * insert new account into the account table
-     * 
+     *
      * @param act
      * @return Account the account to be generated. Null if insertion fails
+     * @throws ConstraintViolationException if the username is already taken
      */
     public Account insertAccount(Account act) {
-        Connection connection = ConnectionUtil.getConnection();
-        Account account = null;
-        try {
-            String sql = "INSERT INTO account (username, password) VALUES (?, ?)";
-            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        return QueryRunner.insert("AccountDAO.insertAccount", INSERT_ACCOUNT, ps -> {
             ps.setString(1, act.username);
             ps.setString(2, act.password);
-            ps.executeUpdate();
-            ResultSet rs = ps.getGeneratedKeys();
-            if (rs.next()) {
-                int generatedId = (int) rs.getLong("account_id");
-                account = new Account(generatedId, act.username, act.password);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return account;
+        }, rs -> new Account((int) rs.getLong("account_id"), act.username, act.password));
     }
 }
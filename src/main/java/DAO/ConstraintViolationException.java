@@ -0,0 +1,36 @@
+package DAO;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown by DAO writes when the database rejects a row because it breaks an
+ * integrity constraint. Services rely on the schema's constraints instead of
+ * checking first, and turn this into their usual failure result.
+ */
+public class ConstraintViolationException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private ConstraintViolationException(String message, SQLException cause) {
+        super(message, cause);
+    }
+
+    /**
+     * @param e
+     * @return boolean true if e reports an integrity constraint violation
+     *         (SQLState class 23)
+     */
+    static boolean isConstraintViolation(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("23");
+    }
+
+    /**
+     * @param name name of the DAO method whose statement was rejected
+     * @param e    an exception for which isConstraintViolation is true
+     * @return ConstraintViolationException
+     */
+    static ConstraintViolationException from(String name, SQLException e) {
+        return new ConstraintViolationException(
+                name + " violated an integrity constraint (SQLState " + e.getSQLState() + ")", e);
+    }
+}
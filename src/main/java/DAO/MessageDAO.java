@@ -1,170 +1,388 @@
 package DAO;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
+import java.io.IOException;
 import java.sql.ResultSet;
-import java.sql.Statement;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
 import Model.Message;
-import Util.ConnectionUtil;
+import Util.Config;
 
 public class MessageDAO {
 
+    static final String INSERT_MESSAGE = "INSERT INTO message (posted_by, message_text, time_posted_epoch) "
+            + "VALUES (?, ?, ?)";
+    static final String STREAM_ALL_MESSAGES = "SELECT * FROM message ORDER BY message_id";
+    // without a LIMIT H2 costs the foreign key index on posted_by the same and
+    // would sort the account's rows before the first one is sent; the hint and
+    // the posted_by prefix make it stream them in (posted_by, message_id) order
+    static final String STREAM_MESSAGES_BY_POSTED_BY = "SELECT * FROM message "
+            + "USE INDEX (message_posted_by_message_id) WHERE posted_by=? ORDER BY posted_by, message_id";
+    static final String SELECT_ALL_MESSAGES = "SELECT * FROM message";
+    static final String SELECT_MESSAGE_BY_MESSAGE_ID = "SELECT * FROM message WHERE message_id=?";
+    static final String SELECT_MESSAGES_BY_POSTED_BY = "SELECT * FROM message WHERE posted_by=?";
+    static final String SELECT_MESSAGES_AFTER = "SELECT * FROM message WHERE message_id>? ORDER BY message_id LIMIT ?";
+    // ordering by posted_by too matches the (posted_by, message_id) index; H2
+    // only reads an index in order when ORDER BY includes the equality prefix
+    static final String SELECT_MESSAGES_BY_POSTED_BY_AFTER = "SELECT * FROM message "
+            + "WHERE posted_by=? AND message_id>? ORDER BY posted_by, message_id LIMIT ?";
+    // keyset pages in (time_posted_epoch, message_id) order; the first page
+    // starts after (since, 0)
+    static final String SELECT_MESSAGES_IN_TIME_RANGE = "SELECT * FROM message "
+            + "WHERE time_posted_epoch>=? AND time_posted_epoch<? AND (time_posted_epoch>? OR message_id>?) "
+            + "ORDER BY time_posted_epoch, message_id LIMIT ?";
+    // ordering by posted_by too matches the index, which lets H2 stop after
+    // limit rows instead of sorting the account's whole range
+    static final String SELECT_MESSAGES_BY_POSTED_BY_IN_TIME_RANGE = "SELECT * FROM message "
+            + "WHERE posted_by=? AND time_posted_epoch>=? AND time_posted_epoch<? "
+            + "AND (time_posted_epoch>? OR message_id>?) ORDER BY posted_by, time_posted_epoch, message_id LIMIT ?";
+    static final String SELECT_MESSAGES_BY_MESSAGE_IDS = "SELECT * FROM message WHERE message_id = ANY(?)";
+    static final String SELECT_MAX_MESSAGE_ID = "SELECT COALESCE(MAX(message_id), 0) AS max_id FROM message";
+    static final String STREAM_MESSAGES_IN_RANGE = "SELECT * FROM message "
+            + "WHERE message_id>? AND message_id<=? ORDER BY message_id";
+    static final String SELECT_RECENT_MESSAGES_BY_POSTED_BY = "SELECT * FROM message "
+            + "WHERE posted_by=? ORDER BY message_id DESC LIMIT ?";
+    // H2 data change delta tables: the changed row comes back from the same
+    // statement, so a patch or delete is a single round trip
+    static final String UPDATE_MESSAGE_TEXT_RETURNING_OLD = "SELECT * FROM OLD TABLE "
+            + "(UPDATE message SET message_text=? WHERE message_id=?)";
+    static final String DELETE_MESSAGE = "SELECT * FROM OLD TABLE (DELETE FROM message WHERE message_id=?)";
+
+    /**
+     * every statement this DAO runs, for startup plan checks
+     */
+    static final List<String> QUERIES = List.of(
+            INSERT_MESSAGE,
+            STREAM_ALL_MESSAGES,
+            STREAM_MESSAGES_BY_POSTED_BY,
+            SELECT_ALL_MESSAGES,
+            SELECT_MESSAGE_BY_MESSAGE_ID,
+            SELECT_MESSAGES_BY_POSTED_BY,
+            SELECT_MESSAGES_AFTER,
+            SELECT_MESSAGES_BY_POSTED_BY_AFTER,
+            SELECT_MESSAGES_IN_TIME_RANGE,
+            SELECT_MESSAGES_BY_POSTED_BY_IN_TIME_RANGE,
+            SELECT_MESSAGES_BY_MESSAGE_IDS,
+            SELECT_MAX_MESSAGE_ID,
+            STREAM_MESSAGES_IN_RANGE,
+            SELECT_RECENT_MESSAGES_BY_POSTED_BY,
+            UPDATE_MESSAGE_TEXT_RETURNING_OLD,
+            DELETE_MESSAGE);
+
+    /**
+     * statements whose ORDER BY must be answered by reading an index in order,
+     * so that a page or stream costs the rows it returns rather than every row
+     * that matches. Checked at startup by QueryPlans
+     */
+    static final List<String> INDEX_SORTED_QUERIES = List.of(
+            STREAM_ALL_MESSAGES,
+            STREAM_MESSAGES_BY_POSTED_BY,
+            SELECT_MESSAGES_AFTER,
+            SELECT_MESSAGES_BY_POSTED_BY_AFTER,
+            SELECT_MESSAGES_IN_TIME_RANGE,
+            SELECT_MESSAGES_BY_POSTED_BY_IN_TIME_RANGE,
+            STREAM_MESSAGES_IN_RANGE);
+
+    /**
+     * JDBC fetch size used by the streaming selects
+     */
+    private static final int STREAM_FETCH_SIZE = Config.getInt("stream.fetchSize", 500);
+
+    /**
+     * maps the current row of rs to a Message
+     *
+     * @param rs
+     * @return Message
+     * @throws SQLException
+     */
+    private static Message mapMessage(ResultSet rs) throws SQLException {
+        return new Message(rs.getInt("message_id"), rs.getInt("posted_by"), rs.getString("message_text"),
+                rs.getLong("time_posted_epoch"));
+    }
+
     /**
      * insert msg into message table
-     * 
+     *
      * @param msg
      * @return Message the message that was just inserted. Null if message cannot be
      *         inserted
+     * @throws ConstraintViolationException if posted_by does not refer to an
+     *                                      account
      */
     public Message insertMessage(Message msg) {
-        Connection connection = ConnectionUtil.getConnection();
-        Message message = null;
-        try {
-            // update statement
-            String sql = "INSERT INTO message (posted_by, message_text, time_posted_epoch) VALUES (?, ?, ?)";
-            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        return QueryRunner.insert("MessageDAO.insertMessage", INSERT_MESSAGE, ps -> {
             ps.setInt(1, msg.posted_by);
             ps.setString(2, msg.message_text);
             ps.setLong(3, msg.time_posted_epoch);
-            ps.executeUpdate();
-            // obtain newly generated key
-            ResultSet rs = ps.getGeneratedKeys();
-            if (rs.next()) {
-                int generatedId = (int) rs.getLong("message_id");
-                message = new Message(generatedId, msg.posted_by, msg.message_text, msg.time_posted_epoch);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        }, rs -> new Message((int) rs.getLong("message_id"), msg.posted_by, msg.message_text,
+                msg.time_posted_epoch));
+    }
+
+    /**
+     * insert every message of msgs into message table in one transaction
+     *
+     * @param msgs
+     * @return List<Message> the inserted messages with their generated
+     *         message_id, in the order of msgs. Empty list if the messages cannot
+     *         be inserted, in which case none of them is
+     * @throws ConstraintViolationException if any posted_by does not refer to
+     *                                      an account
+     */
+    public List<Message> insertMessages(List<Message> msgs) {
+        List<Integer> ids = QueryRunner.insertBatch("MessageDAO.insertMessages", INSERT_MESSAGE, msgs,
+                (ps, msg) -> {
+                    ps.setInt(1, msg.posted_by);
+                    ps.setString(2, msg.message_text);
+                    ps.setLong(3, msg.time_posted_epoch);
+                }, rs -> (int) rs.getLong("message_id"));
+        List<Message> inserted = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Message msg = msgs.get(i);
+            inserted.add(new Message(ids.get(i), msg.posted_by, msg.message_text, msg.time_posted_epoch));
         }
-        return message;
+        return inserted;
     }
 
     /**
      * selects all messages from message table
-     * 
+     *
      * @return List<Message> list of all messages. Empty list if no message can be
      *         found
      */
     public List<Message> selectAllMessages() {
-        Connection connection = ConnectionUtil.getConnection();
-        ArrayList<Message> messages = new ArrayList<>();
-        try {
-            // select statement
-            String sql = "SELECT * FROM message";
-            PreparedStatement ps = connection.prepareStatement(sql);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                messages.add(new Message(rs.getInt("message_id"), rs.getInt("posted_by"), rs.getString("message_text"),
-                        rs.getLong("time_posted_epoch")));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return messages;
+        return QueryRunner.queryList("MessageDAO.selectAllMessages", SELECT_ALL_MESSAGES,
+                QueryRunner.NO_PARAMETERS, MessageDAO::mapMessage);
     }
 
     /**
      * selects the message with message_id
-     * 
+     *
      * @param message_id
      * @return Message selected message. Null if message cannot be found
      */
     public Message selectMessageByMessageId(int message_id) {
-        Connection connection = ConnectionUtil.getConnection();
-        Message message = null;
-        try {
-            // select statement
-            String sql = "SELECT * FROM message WHERE message_id=?";
-            PreparedStatement ps = connection.prepareStatement(sql);
-            ps.setInt(1, message_id);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                message = new Message(rs.getInt("message_id"), rs.getInt("posted_by"), rs.getString("message_text"),
-                        rs.getLong("time_posted_epoch"));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return message;
+        return QueryRunner.queryOne("MessageDAO.selectMessageByMessageId", SELECT_MESSAGE_BY_MESSAGE_ID,
+                ps -> ps.setInt(1, message_id), MessageDAO::mapMessage);
     }
 
     /**
      * select all messages posted by posted_by
-     * 
+     *
      * @param posted_by
      * @return List<Message> list of all messages posted by posted_by. Empty list if
      *         none can be found
      */
     public List<Message> selectMessagesByPostedBy(int posted_by) {
-        Connection connection = ConnectionUtil.getConnection();
-        ArrayList<Message> messages = new ArrayList<>();
-        try {
-            // select statement
-            String sql = "SELECT * FROM message WHERE posted_by=?";
-            PreparedStatement ps = connection.prepareStatement(sql);
-            ps.setInt(1, posted_by);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                messages.add(new Message(rs.getInt("message_id"), rs.getInt("posted_by"), rs.getString("message_text"),
-                        rs.getLong("time_posted_epoch")));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        return QueryRunner.queryList("MessageDAO.selectMessagesByPostedBy", SELECT_MESSAGES_BY_POSTED_BY,
+                ps -> ps.setInt(1, posted_by), MessageDAO::mapMessage);
+    }
+
+    /**
+     * streams all messages from message table to sink in message_id order
+     * without collecting them in memory
+     * 
+     * @param sink receives each message as it is read
+     * @return boolean true if every message was delivered
+     * @throws IOException if sink fails
+     */
+    public boolean streamAllMessages(QueryRunner.Sink<Message> sink) throws IOException {
+        return QueryRunner.stream("MessageDAO.streamAllMessages", STREAM_ALL_MESSAGES, QueryRunner.NO_PARAMETERS,
+                STREAM_FETCH_SIZE, MessageDAO::mapMessage, sink);
+    }
+
+    /**
+     * streams all messages posted by posted_by to sink in message_id order
+     * without collecting them in memory
+     * 
+     * @param posted_by
+     * @param sink      receives each message as it is read
+     * @return boolean true if every message was delivered
+     * @throws IOException if sink fails
+     */
+    public boolean streamMessagesByPostedBy(int posted_by, QueryRunner.Sink<Message> sink) throws IOException {
+        return QueryRunner.stream("MessageDAO.streamMessagesByPostedBy", STREAM_MESSAGES_BY_POSTED_BY,
+                ps -> ps.setInt(1, posted_by), STREAM_FETCH_SIZE, MessageDAO::mapMessage, sink);
+    }
+
+    /**
+     * selects up to limit messages with message_id greater than after_id, in
+     * message_id order. Served by the primary key index, so the cost of a page
+     * does not depend on how deep into the table it starts
+     *
+     * @param after_id exclusive lower bound on message_id. 0 for the first page
+     * @param limit
+     * @return List<Message> the page of messages. Empty list if none remain
+     */
+    public List<Message> selectMessagesAfter(int after_id, int limit) {
+        return QueryRunner.queryList("MessageDAO.selectMessagesAfter", SELECT_MESSAGES_AFTER, ps -> {
+            ps.setInt(1, after_id);
+            ps.setInt(2, limit);
+        }, MessageDAO::mapMessage);
+    }
+
+    /**
+     * selects up to limit messages posted by posted_by with message_id greater
+     * than after_id, in message_id order
+     *
+     * @param posted_by
+     * @param after_id  exclusive lower bound on message_id. 0 for the first page
+     * @param limit
+     * @return List<Message> the page of messages. Empty list if none remain
+     */
+    public List<Message> selectMessagesByPostedByAfter(int posted_by, int after_id, int limit) {
+        return QueryRunner.queryList("MessageDAO.selectMessagesByPostedByAfter", SELECT_MESSAGES_BY_POSTED_BY_AFTER,
+                ps -> {
+                    ps.setInt(1, posted_by);
+                    ps.setInt(2, after_id);
+                    ps.setInt(3, limit);
+                }, MessageDAO::mapMessage);
+    }
+
+    /**
+     * selects up to limit messages with a time_posted_epoch before until that
+     * come after (after_time, after_id) in (time_posted_epoch, message_id)
+     * order. Served by the (time_posted_epoch, message_id) index
+     *
+     * @param after_time time_posted_epoch of the last message of the previous
+     *                   page, or the inclusive start of the range for the first
+     *                   page
+     * @param after_id   message_id of the last message of the previous page. 0
+     *                   for the first page
+     * @param until      exclusive end of the range
+     * @param limit
+     * @return List<Message> the page of messages. Empty list if none remain
+     */
+    public List<Message> selectMessagesInTimeRange(long after_time, int after_id, long until, int limit) {
+        return QueryRunner.queryList("MessageDAO.selectMessagesInTimeRange", SELECT_MESSAGES_IN_TIME_RANGE, ps -> {
+            ps.setLong(1, after_time);
+            ps.setLong(2, until);
+            ps.setLong(3, after_time);
+            ps.setInt(4, after_id);
+            ps.setInt(5, limit);
+        }, MessageDAO::mapMessage);
+    }
+
+    /**
+     * selects up to limit messages posted by posted_by with a time_posted_epoch
+     * before until that come after (after_time, after_id) in
+     * (time_posted_epoch, message_id) order. Served by the (posted_by,
+     * time_posted_epoch, message_id) index
+     *
+     * @param posted_by
+     * @param after_time time_posted_epoch of the last message of the previous
+     *                   page, or the inclusive start of the range for the first
+     *                   page
+     * @param after_id   message_id of the last message of the previous page. 0
+     *                   for the first page
+     * @param until      exclusive end of the range
+     * @param limit
+     * @return List<Message> the page of messages. Empty list if none remain
+     */
+    public List<Message> selectMessagesByPostedByInTimeRange(int posted_by, long after_time, int after_id, long until,
+            int limit) {
+        return QueryRunner.queryList("MessageDAO.selectMessagesByPostedByInTimeRange",
+                SELECT_MESSAGES_BY_POSTED_BY_IN_TIME_RANGE, ps -> {
+                    ps.setInt(1, posted_by);
+                    ps.setLong(2, after_time);
+                    ps.setLong(3, until);
+                    ps.setLong(4, after_time);
+                    ps.setInt(5, after_id);
+                    ps.setInt(6, limit);
+                }, MessageDAO::mapMessage);
+    }
+
+    /**
+     * selects the messages whose message_id is in message_ids
+     *
+     * @param message_ids
+     * @return List<Message> the messages that exist, in no particular order.
+     *         Empty list if none exist or if the query fails
+     */
+    public List<Message> selectMessagesByMessageIds(int[] message_ids) {
+        if (message_ids.length == 0) {
+            return new ArrayList<>();
         }
-        return messages;
+        Integer[] ids = new Integer[message_ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = message_ids[i];
+        }
+        return QueryRunner.queryList("MessageDAO.selectMessagesByMessageIds", SELECT_MESSAGES_BY_MESSAGE_IDS,
+                ps -> ps.setObject(1, ids), MessageDAO::mapMessage);
+    }
+
+    /**
+     * @return int the highest message_id in the message table. 0 if it is empty,
+     *         -1 if the query fails
+     */
+    public int selectMaxMessageId() {
+        Integer max = QueryRunner.queryOne("MessageDAO.selectMaxMessageId", SELECT_MAX_MESSAGE_ID,
+                QueryRunner.NO_PARAMETERS, rs -> rs.getInt("max_id"));
+        return max == null ? -1 : max;
+    }
+
+    /**
+     * streams the messages with after_id < message_id <= last_id to sink in
+     * message_id order without collecting them in memory
+     *
+     * @param after_id exclusive lower bound on message_id
+     * @param last_id  inclusive upper bound on message_id
+     * @param sink     receives each message as it is read
+     * @return boolean true if every message was delivered
+     * @throws IOException if sink fails
+     */
+    public boolean streamMessagesInRange(int after_id, int last_id, QueryRunner.Sink<Message> sink)
+            throws IOException {
+        return QueryRunner.stream("MessageDAO.streamMessagesInRange", STREAM_MESSAGES_IN_RANGE, ps -> {
+            ps.setInt(1, after_id);
+            ps.setInt(2, last_id);
+        }, STREAM_FETCH_SIZE, MessageDAO::mapMessage, sink);
+    }
+
+    /**
+     * selects the limit most recent messages posted by posted_by, newest first
+     *
+     * @param posted_by
+     * @param limit
+     * @return List<Message> the messages. Empty list if there are none, null if
+     *         the query fails
+     */
+    public List<Message> selectRecentMessagesByPostedBy(int posted_by, int limit) {
+        return QueryRunner.queryListOrNull("MessageDAO.selectRecentMessagesByPostedBy",
+                SELECT_RECENT_MESSAGES_BY_POSTED_BY, ps -> {
+                    ps.setInt(1, posted_by);
+                    ps.setInt(2, limit);
+                }, MessageDAO::mapMessage);
     }
 
     /**
      * replace the message_text of message_id with message_text of msg if message_id
-     * exists
-     * 
+     * exists, returning the row as it was before, for callers that need the old
+     * text
+     *
      * @param message_id
      * @param msg
-     * @return Message the newly updated message with message_id. Null if
-     *         message_text cannot be found
-     */
-    public Message updateMessageByMessageIdAndMessage(int message_id, Message msg) {
-        Connection connection = ConnectionUtil.getConnection();
-        Message message = null;
-        try {
-            // update statement
-            String sql = "UPDATE message SET message_text=? WHERE message_id=?";
-            PreparedStatement ps = connection.prepareStatement(sql);
-            ps.setString(1, msg.message_text);
-            ps.setInt(2, message_id);
-            ps.executeUpdate();
-            // retrieves the newly updated message
-            message = selectMessageByMessageId(message_id);
-
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return message;
+     * @return Message the message with message_id before the update. Null if
+     *         message_id cannot be found
+     */
+    public Message updateMessageByMessageIdReturningOld(int message_id, Message msg) {
+        return QueryRunner.queryOne("MessageDAO.updateMessageByMessageIdReturningOld",
+                UPDATE_MESSAGE_TEXT_RETURNING_OLD, ps -> {
+                    ps.setString(1, msg.message_text);
+                    ps.setInt(2, message_id);
+                }, MessageDAO::mapMessage);
     }
 
     /**
      * deletes the message with message_id form message table
-     * 
+     *
      * @param message_id
      * @return Message the message that was just deleted. Null if message does not
      *         exist
      */
     public Message deleteMessageByMessageId(int message_id) {
-        Connection connection = ConnectionUtil.getConnection();
-        Message message = selectMessageByMessageId(message_id);
-        try {
-            // delete statement
-            String sql = "DELETE FROM message WHERE message_id=?";
-            PreparedStatement ps = connection.prepareStatement(sql);
-            ps.setInt(1, message_id);
-            ps.executeUpdate();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return message;
+        return QueryRunner.queryOne("MessageDAO.deleteMessageByMessageId", DELETE_MESSAGE,
+                ps -> ps.setInt(1, message_id), MessageDAO::mapMessage);
     }
 
 }
@@ -0,0 +1,75 @@
+package DAO;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * QueryMetrics keeps call counts and acquire, execute and map histograms for
+ * every DAO query, keyed by the name the DAO method passes to QueryRunner.
+ * QueryRunner records into it on every call; GET /metrics reads it.
+ */
+public final class QueryMetrics {
+
+    /**
+     * phases longer than a minute are recorded as a minute
+     */
+    private static final long MAX_RECORDED_MICROS = 60_000_000L;
+
+    private static final ConcurrentMap<String, Query> QUERIES = new ConcurrentHashMap<>();
+
+    private QueryMetrics() {
+    }
+
+    /**
+     * @return List<QueryStats> a snapshot of every query that has run, by name
+     */
+    public static List<QueryStats> getStats() {
+        List<QueryStats> stats = new ArrayList<>();
+        QUERIES.forEach((name, query) -> stats.add(query.snapshot(name)));
+        stats.sort(Comparator.comparing(QueryStats::getName));
+        return stats;
+    }
+
+    static void record(String name, long acquireNanos, long executeNanos, long mapNanos, boolean failed,
+            boolean slow) {
+        Query query = QUERIES.get(name);
+        if (query == null) {
+            query = QUERIES.computeIfAbsent(name, n -> new Query());
+        }
+        query.calls.increment();
+        if (failed) {
+            query.errors.increment();
+        }
+        if (slow) {
+            query.slow.increment();
+        }
+        query.acquireMicros.recordValue(micros(acquireNanos));
+        query.executeMicros.recordValue(micros(executeNanos));
+        query.mapMicros.recordValue(micros(mapNanos));
+    }
+
+    private static long micros(long nanos) {
+        return Math.max(0, Math.min(MAX_RECORDED_MICROS, nanos / 1000));
+    }
+
+    private static class Query {
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder slow = new LongAdder();
+        final Histogram acquireMicros = new ConcurrentHistogram(MAX_RECORDED_MICROS, 3);
+        final Histogram executeMicros = new ConcurrentHistogram(MAX_RECORDED_MICROS, 3);
+        final Histogram mapMicros = new ConcurrentHistogram(MAX_RECORDED_MICROS, 3);
+
+        QueryStats snapshot(String name) {
+            return new QueryStats(name, calls.sum(), errors.sum(), slow.sum(), acquireMicros.copy(),
+                    executeMicros.copy(), mapMicros.copy());
+        }
+    }
+}
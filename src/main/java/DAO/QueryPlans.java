@@ -0,0 +1,147 @@
+package DAO;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import Util.ConnectionUtil;
+
+/**
+ * QueryPlans asks H2 to EXPLAIN every statement the DAOs run and logs the
+ * plans, so a missing index shows up as a "table scan" line at startup rather
+ * than as a slow endpoint in production. Keyset pages and streams that H2
+ * would sort instead of reading an index in order are logged the same way.
+ */
+public final class QueryPlans {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryPlans.class);
+
+    /**
+     * a select over a data change delta table, e.g. FINAL TABLE (UPDATE ...)
+     */
+    private static final Pattern DELTA_TABLE = Pattern.compile(
+            "^SELECT .* FROM (?:OLD|NEW|FINAL) TABLE \\((.*)\\)$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private QueryPlans() {
+    }
+
+    /**
+     * log the H2 EXPLAIN plan of every DAO statement. Parameters are left unbound
+     * (NULL) since only the access path is of interest
+     */
+    public static void logPlans() {
+        List<String> queries = new ArrayList<>(AccountDAO.QUERIES);
+        queries.addAll(MessageDAO.QUERIES);
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            for (String sql : queries) {
+                String plan = explain(connection, planned(sql));
+                // listings without a WHERE clause are expected to scan
+                if (sql.contains("WHERE") && plan.contains("table scan")) {
+                    LOG.warn("Query plan uses a table scan: {}\n{}", sql, plan);
+                } else if (MessageDAO.INDEX_SORTED_QUERIES.contains(sql) && !isIndexSorted(plan)) {
+                    LOG.warn("Query plan sorts instead of reading an index in order: {}\n{}", sql, plan);
+                } else {
+                    LOG.info("Query plan for {}\n{}", sql, plan);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return List<String> the statements that must read an index in order but
+     *         whose plan sorts the matching rows instead. Empty when every keyset
+     *         page and stream is served in index order
+     * @throws SQLException
+     */
+    public static List<String> unsortedQueries() throws SQLException {
+        List<String> unsorted = new ArrayList<>();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            for (String sql : MessageDAO.INDEX_SORTED_QUERIES) {
+                if (!isIndexSorted(explain(connection, sql))) {
+                    unsorted.add(sql);
+                }
+            }
+        }
+        return unsorted;
+    }
+
+    /**
+     * @param plan
+     * @return boolean true if H2 reads the rows in ORDER BY order from an index
+     */
+    static boolean isIndexSorted(String plan) {
+        return plan.contains("/* index sorted */");
+    }
+
+    /**
+     * H2 plans a delta table select as a scan of the delta table; the access path
+     * worth checking is the one of the data change statement inside it
+     *
+     * @param sql
+     * @return String the statement whose plan should be checked
+     */
+    static String planned(String sql) {
+        Matcher matcher = DELTA_TABLE.matcher(sql);
+        return matcher.matches() ? matcher.group(1) : sql;
+    }
+
+    /**
+     * EXPLAIN ANALYZE runs a query once with its real parameters and reports the
+     * rows each step scanned. A statement that changes data, including one inside
+     * a delta table select, only gets a plain EXPLAIN so it is not run again
+     *
+     * @param connection
+     * @param sql
+     * @param binder     binds the parameters sql ran with
+     * @return String the plan of sql with its parameters
+     * @throws SQLException
+     */
+    static String explainAnalyze(Connection connection, String sql, QueryRunner.Binder binder)
+            throws SQLException {
+        String planned = planned(sql);
+        boolean query = planned.equals(sql) && sql.trim().regionMatches(true, 0, "SELECT", 0, 6);
+        StringBuilder plan = new StringBuilder();
+        try (PreparedStatement ps = connection.prepareStatement((query ? "EXPLAIN ANALYZE " : "EXPLAIN ") + planned)) {
+            binder.bind(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1));
+                }
+            }
+        }
+        return plan.toString();
+    }
+
+    /**
+     * @param connection
+     * @param sql
+     * @return String the plan H2 would use for sql
+     * @throws SQLException
+     */
+    static String explain(Connection connection, String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (PreparedStatement ps = connection.prepareStatement("EXPLAIN " + sql)) {
+            int parameters = ps.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                ps.setNull(i, Types.NULL);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1));
+                }
+            }
+        }
+        return plan.toString();
+    }
+}
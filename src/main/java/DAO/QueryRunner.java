@@ -0,0 +1,338 @@
+package DAO;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import Util.ConnectionUtil;
+
+/**
+ * QueryRunner is the single path DAO methods take to the database. Each call
+ * borrows a connection from the pool, prepares and runs one statement, maps
+ * the rows and then closes the ResultSet, PreparedStatement and Connection
+ * regardless of how the call ended.
+ *
+ * Every call is timed by QueryTimer in three phases (connection acquire,
+ * execute, row mapping) into QueryMetrics, and calls slower than
+ * socialmedia.slowQuery.thresholdMillis go to SlowQueryLog.
+ *
+ * Failures are printed and reported the same way the DAOs always have: an
+ * empty list, null or 0. The exception is a write rejected by an integrity
+ * constraint, which is thrown as a ConstraintViolationException so that
+ * services can rely on the schema's constraints instead of checking first.
+ */
+public final class QueryRunner {
+
+    /**
+     * sets the parameters of a prepared statement
+     */
+    @FunctionalInterface
+    public interface Binder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    /**
+     * sets the parameters of a prepared statement for one item of a batch
+     */
+    @FunctionalInterface
+    public interface ItemBinder<T> {
+        void bind(PreparedStatement ps, T item) throws SQLException;
+    }
+
+    /**
+     * turns the current row of a ResultSet into an object
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * receives rows one at a time from stream
+     */
+    @FunctionalInterface
+    public interface Sink<T> {
+        void accept(T row) throws IOException;
+    }
+
+    /**
+     * binder for statements without parameters
+     */
+    public static final Binder NO_PARAMETERS = ps -> {
+    };
+
+    private QueryRunner() {
+    }
+
+    /**
+     * run a query and map every row
+     *
+     * @param name   name of the calling DAO method, used in diagnostics
+     * @param sql
+     * @param binder
+     * @param mapper
+     * @return List<T> mapped rows. Empty list if none or if the query fails
+     */
+    public static <T> List<T> queryList(String name, String sql, Binder binder, RowMapper<T> mapper) {
+        List<T> rows = queryListOrNull(name, sql, binder, mapper);
+        return rows != null ? rows : new ArrayList<>();
+    }
+
+    /**
+     * run a query and map every row, for callers that must not mistake a failed
+     * query for an empty result
+     *
+     * @param name   name of the calling DAO method, used in diagnostics
+     * @param sql
+     * @param binder
+     * @param mapper
+     * @return List<T> mapped rows. Empty list if none, null if the query fails
+     */
+    public static <T> List<T> queryListOrNull(String name, String sql, Binder binder, RowMapper<T> mapper) {
+        List<T> rows = new ArrayList<>();
+        QueryTimer timer = new QueryTimer(name, sql);
+        try (Connection connection = borrow(name, timer);
+                PreparedStatement ps = connection.prepareStatement(sql)) {
+            binder.bind(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                timer.mapping();
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+                timer.mapped();
+            }
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+            return null;
+        } finally {
+            timer.finish(binder);
+        }
+        return rows;
+    }
+
+    /**
+     * run a query and hand each mapped row to sink as it is read, without
+     * collecting the rows. The query runs with H2 lazy execution and the given
+     * fetch size, so neither H2 nor the caller holds the whole result in memory.
+     * The map phase includes handing rows to sink, so it does not count towards
+     * the slow-query threshold
+     *
+     * @param name      name of the calling DAO method, used in diagnostics
+     * @param sql
+     * @param binder
+     * @param fetchSize JDBC fetch size hint
+     * @param mapper
+     * @param sink
+     * @return boolean true if the whole result was delivered, false if the
+     *         query failed part way
+     * @throws IOException if sink fails, e.g. because the client went away
+     */
+    public static <T> boolean stream(String name, String sql, Binder binder, int fetchSize, RowMapper<T> mapper,
+            Sink<T> sink) throws IOException {
+        QueryTimer timer = new QueryTimer(name, sql);
+        try (Connection connection = borrow(name, timer)) {
+            setLazyExecution(connection, true);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setFetchSize(fetchSize);
+                binder.bind(ps);
+                try (ResultSet rs = ps.executeQuery()) {
+                    timer.mapping();
+                    while (rs.next()) {
+                        sink.accept(mapper.map(rs));
+                    }
+                    timer.mapped();
+                }
+            } finally {
+                setLazyExecution(connection, false);
+            }
+            return true;
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+        } finally {
+            timer.finish(binder, 1, false);
+        }
+        return false;
+    }
+
+    /**
+     * toggle H2 lazy query execution for the session behind connection. Pooled
+     * connections outlive the call, so the setting must be switched back off
+     */
+    private static void setLazyExecution(Connection connection, boolean lazy) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LAZY_QUERY_EXECUTION " + (lazy ? "TRUE" : "FALSE"));
+        }
+    }
+
+    /**
+     * run a query expected to match at most one row
+     *
+     * @param name   name of the calling DAO method, used in diagnostics
+     * @param sql
+     * @param binder
+     * @param mapper
+     * @return T the mapped row. Null if nothing matched or if the query fails
+     */
+    public static <T> T queryOne(String name, String sql, Binder binder, RowMapper<T> mapper) {
+        T row = null;
+        QueryTimer timer = new QueryTimer(name, sql);
+        try (Connection connection = borrow(name, timer);
+                PreparedStatement ps = connection.prepareStatement(sql)) {
+            binder.bind(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                timer.mapping();
+                if (rs.next()) {
+                    row = mapper.map(rs);
+                }
+                timer.mapped();
+            }
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+        } finally {
+            timer.finish(binder);
+        }
+        return row;
+    }
+
+    /**
+     * run an UPDATE or DELETE
+     *
+     * @param name   name of the calling DAO method, used in diagnostics
+     * @param sql
+     * @param binder
+     * @return int number of affected rows. 0 if the statement fails
+     * @throws ConstraintViolationException if the database rejects the change
+     */
+    public static int update(String name, String sql, Binder binder) {
+        QueryTimer timer = new QueryTimer(name, sql);
+        try (Connection connection = borrow(name, timer);
+                PreparedStatement ps = connection.prepareStatement(sql)) {
+            binder.bind(ps);
+            return ps.executeUpdate();
+        } catch (SQLException e) {
+            timer.failed();
+            rethrowConstraintViolation(name, e);
+            e.printStackTrace();
+        } finally {
+            timer.finish(binder);
+        }
+        return 0;
+    }
+
+    /**
+     * run an INSERT and map the generated keys
+     *
+     * @param name      name of the calling DAO method, used in diagnostics
+     * @param sql
+     * @param binder
+     * @param keyMapper maps the generated key row
+     * @return T the mapped key row. Null if the insert fails
+     * @throws ConstraintViolationException if the database rejects the row
+     */
+    public static <T> T insert(String name, String sql, Binder binder, RowMapper<T> keyMapper) {
+        T row = null;
+        QueryTimer timer = new QueryTimer(name, sql);
+        try (Connection connection = borrow(name, timer);
+                PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            binder.bind(ps);
+            ps.executeUpdate();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                timer.mapping();
+                if (rs.next()) {
+                    row = keyMapper.map(rs);
+                }
+                timer.mapped();
+            }
+        } catch (SQLException e) {
+            timer.failed();
+            rethrowConstraintViolation(name, e);
+            e.printStackTrace();
+        } finally {
+            timer.finish(binder);
+        }
+        return row;
+    }
+
+    /**
+     * insert every item with one JDBC batch in a single transaction and map the
+     * generated keys. Either every item is inserted or none is
+     *
+     * @param name      name of the calling DAO method, used in diagnostics
+     * @param sql
+     * @param items
+     * @param binder    binds one item to the statement
+     * @param keyMapper maps one generated key row
+     * @return List<K> one key row per item, in item order. Empty list if the
+     *         batch fails
+     * @throws ConstraintViolationException if the database rejects any row
+     */
+    public static <T, K> List<K> insertBatch(String name, String sql, List<T> items, ItemBinder<T> binder,
+            RowMapper<K> keyMapper) {
+        List<K> keys = new ArrayList<>(items.size());
+        if (items.isEmpty()) {
+            return keys;
+        }
+        QueryTimer timer = new QueryTimer(name, sql);
+        // the pool restores autocommit when the connection is returned
+        try (Connection connection = borrow(name, timer)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (T item : items) {
+                    binder.bind(ps, item);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    timer.mapping();
+                    while (rs.next()) {
+                        keys.add(keyMapper.map(rs));
+                    }
+                    timer.mapped();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            timer.failed();
+            keys.clear();
+            rethrowConstraintViolation(name, e);
+            e.printStackTrace();
+        } finally {
+            timer.finish(ps -> binder.bind(ps, items.get(0)), items.size(), true);
+        }
+        return keys;
+    }
+
+    /**
+     * surface integrity constraint violations to the caller; any other failure
+     * is left to the usual print-and-return handling
+     */
+    private static void rethrowConstraintViolation(String name, SQLException e) {
+        if (ConstraintViolationException.isConstraintViolation(e)) {
+            throw ConstraintViolationException.from(name, e);
+        }
+    }
+
+    /**
+     * borrow a pooled connection, failing with an SQLException instead of
+     * returning null, and mark the end of the acquire phase
+     */
+    private static Connection borrow(String name, QueryTimer timer) throws SQLException {
+        Connection connection = ConnectionUtil.getConnection();
+        if (connection == null) {
+            throw new SQLException("No connection available for " + name);
+        }
+        timer.acquired();
+        return connection;
+    }
+}
@@ -0,0 +1,92 @@
+package DAO;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * An immutable snapshot of the timings of one DAO query, as returned by
+ * QueryMetrics.getStats().
+ */
+public class QueryStats {
+
+    private final String name;
+    private final long calls;
+    private final long errors;
+    private final long slow;
+    private final Histogram acquireMicros;
+    private final Histogram executeMicros;
+    private final Histogram mapMicros;
+
+    QueryStats(String name, long calls, long errors, long slow, Histogram acquireMicros, Histogram executeMicros,
+            Histogram mapMicros) {
+        this.name = name;
+        this.calls = calls;
+        this.errors = errors;
+        this.slow = slow;
+        this.acquireMicros = acquireMicros;
+        this.executeMicros = executeMicros;
+        this.mapMicros = mapMicros;
+    }
+
+    /**
+     * @return String the DAO method the query belongs to, e.g. getMessageById
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return long times the query ran
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    /**
+     * @return long runs that failed with an SQLException
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return long runs above socialmedia.slowQuery.thresholdMillis
+     */
+    public long getSlow() {
+        return slow;
+    }
+
+    /**
+     * @return Histogram time spent borrowing a connection, in microseconds
+     */
+    public Histogram getAcquireMicros() {
+        return acquireMicros;
+    }
+
+    /**
+     * @return Histogram time spent preparing and executing the statement, in
+     *         microseconds
+     */
+    public Histogram getExecuteMicros() {
+        return executeMicros;
+    }
+
+    /**
+     * @return Histogram time spent reading and mapping rows, in microseconds
+     */
+    public Histogram getMapMicros() {
+        return mapMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryStats{" +
+                "name='" + name + '\'' +
+                ", calls=" + calls +
+                ", errors=" + errors +
+                ", slow=" + slow +
+                ", acquireP99Micros=" + acquireMicros.getValueAtPercentile(99) +
+                ", executeP99Micros=" + executeMicros.getValueAtPercentile(99) +
+                ", mapP99Micros=" + mapMicros.getValueAtPercentile(99) +
+                '}';
+    }
+}
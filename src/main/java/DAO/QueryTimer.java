@@ -0,0 +1,73 @@
+package DAO;
+
+/**
+ * Times one QueryRunner call in three phases and hands the result to
+ * QueryMetrics, and to SlowQueryLog when the call was slow:
+ * <ul>
+ * <li>acquire: borrowing the connection from the pool</li>
+ * <li>map: reading rows and mapping them, between mapping() and mapped()</li>
+ * <li>execute: everything else, i.e. preparing, binding and running the
+ * statement, committing and closing</li>
+ * </ul>
+ */
+final class QueryTimer {
+
+    private final String name;
+    private final String sql;
+    private final long start = System.nanoTime();
+    private long acquired;
+    private boolean hasConnection;
+    private long mapStart;
+    private long mapNanos;
+    private boolean failed;
+
+    QueryTimer(String name, String sql) {
+        this.name = name;
+        this.sql = sql;
+    }
+
+    void acquired() {
+        acquired = System.nanoTime();
+        hasConnection = true;
+    }
+
+    void mapping() {
+        mapStart = System.nanoTime();
+    }
+
+    void mapped() {
+        mapNanos += System.nanoTime() - mapStart;
+    }
+
+    void failed() {
+        failed = true;
+    }
+
+    /**
+     * @param binder binds the call's parameters again if the slow-query log
+     *               needs them
+     */
+    void finish(QueryRunner.Binder binder) {
+        finish(binder, 1, true);
+    }
+
+    /**
+     * @param binder     binds the call's parameters, or those of the first item
+     *                   of a batch, again if the slow-query log needs them
+     * @param batchSize  rows written by the call
+     * @param mapIsQuery false if the map phase includes work outside the
+     *                   database, such as writing streamed rows to a client, and
+     *                   should not make the query count as slow
+     */
+    void finish(QueryRunner.Binder binder, int batchSize, boolean mapIsQuery) {
+        long end = System.nanoTime();
+        long acquireNanos = (hasConnection ? acquired : end) - start;
+        long executeNanos = end - start - acquireNanos - mapNanos;
+        long measuredNanos = mapIsQuery ? end - start : acquireNanos + executeNanos;
+        boolean slow = SlowQueryLog.isSlow(measuredNanos);
+        QueryMetrics.record(name, acquireNanos, executeNanos, mapNanos, failed, slow);
+        if (slow) {
+            SlowQueryLog.report(name, sql, binder, batchSize, acquireNanos, executeNanos, mapNanos);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package DAO;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import Util.Config;
+import Util.ConnectionUtil;
+
+/**
+ * SlowQueryLog logs every DAO call slower than socialmedia.slowQuery.thresholdMillis
+ * with its phase timings and parameters, and then captures H2's EXPLAIN ANALYZE
+ * of the statement with the same parameters.
+ *
+ * The plan is captured on a background thread so the slow request is not held
+ * up further, and at most once per socialmedia.slowQuery.explainIntervalMillis
+ * for each query. EXPLAIN ANALYZE runs the statement, so statements that change
+ * data only get a plain EXPLAIN. Statements that touch a password column have
+ * their parameters redacted and are explained with NULL parameters.
+ */
+final class SlowQueryLog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private static final long THRESHOLD_NANOS = TimeUnit.MILLISECONDS
+            .toNanos(Config.getLong("slowQuery.thresholdMillis", 100));
+    private static final boolean EXPLAIN = Config.getBoolean("slowQuery.explain", true);
+    private static final long EXPLAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS
+            .toNanos(Config.getLong("slowQuery.explainIntervalMillis", 60000));
+
+    private static final ConcurrentMap<String, Long> LAST_EXPLAINED = new ConcurrentHashMap<>();
+
+    /**
+     * one daemon thread with a short queue; plans that do not fit are dropped
+     */
+    private static final ThreadPoolExecutor EXPLAINER = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(16), runnable -> {
+                Thread thread = new Thread(runnable, "slow-query-explain");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    private SlowQueryLog() {
+    }
+
+    /**
+     * @param nanos
+     * @return boolean true if a call that took nanos should be logged
+     */
+    static boolean isSlow(long nanos) {
+        return nanos >= THRESHOLD_NANOS;
+    }
+
+    /**
+     * log a slow call and schedule the capture of its plan
+     *
+     * @param name         name of the calling DAO method
+     * @param sql
+     * @param binder       binds the call's parameters
+     * @param batchSize    rows written by the call; above 1 the parameters are
+     *                     those of the first row
+     * @param acquireNanos
+     * @param executeNanos
+     * @param mapNanos
+     */
+    static void report(String name, String sql, QueryRunner.Binder binder, int batchSize, long acquireNanos,
+            long executeNanos, long mapNanos) {
+        boolean sensitive = isSensitive(sql);
+        String parameters = sensitive ? "[redacted]" : parameters(binder).toString();
+        if (batchSize > 1) {
+            parameters = "batch of " + batchSize + ", first " + parameters;
+        }
+        LOG.warn("Slow query {} took {} ms (acquire {} ms, execute {} ms, map {} ms) with parameters {}: {}", name,
+                millis(acquireNanos + executeNanos + mapNanos), millis(acquireNanos), millis(executeNanos),
+                millis(mapNanos), parameters, sql);
+        if (EXPLAIN && explainDue(name)) {
+            EXPLAINER.execute(() -> {
+                try (Connection connection = ConnectionUtil.getConnection()) {
+                    String plan = sensitive ? QueryPlans.explain(connection, QueryPlans.planned(sql))
+                            : QueryPlans.explainAnalyze(connection, sql, binder);
+                    LOG.warn("Plan of slow query {}\n{}", name, plan);
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+    }
+
+    private static boolean explainDue(String name) {
+        long now = System.nanoTime();
+        Long last = LAST_EXPLAINED.get(name);
+        if (last != null && now - last < EXPLAIN_INTERVAL_NANOS) {
+            return false;
+        }
+        // only one of several concurrent slow calls wins the slot
+        return last == null ? LAST_EXPLAINED.putIfAbsent(name, now) == null : LAST_EXPLAINED.replace(name, last, now);
+    }
+
+    private static boolean isSensitive(String sql) {
+        return sql.toLowerCase().contains("password");
+    }
+
+    /**
+     * run binder against a PreparedStatement that only records what is set
+     *
+     * @param binder
+     * @return Map<Integer, Object> parameter values by index
+     */
+    private static Map<Integer, Object> parameters(QueryRunner.Binder binder) {
+        Map<Integer, Object> values = new TreeMap<>();
+        PreparedStatement recorder = (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("set") && args != null && args.length >= 2
+                            && args[0] instanceof Integer) {
+                        Object value = method.getName().equals("setNull") ? null : args[1];
+                        values.put((Integer) args[0],
+                                value instanceof Object[] ? Arrays.toString((Object[]) value) : value);
+                    }
+                    // binders only call setters; anything else gets a default
+                    Class<?> type = method.getReturnType();
+                    if (type == boolean.class) {
+                        return false;
+                    } else if (type == int.class) {
+                        return 0;
+                    } else if (type == long.class) {
+                        return 0L;
+                    }
+                    return null;
+                });
+        try {
+            binder.bind(recorder);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return values;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,64 @@
+package Model;
+
+/**
+ * This is a class that models the outcome of one message in a batch post. Exactly one of message_id and error is
+ * set.
+ */
+public class MessageBatchResult {
+    /**
+     * Position of the message in the submitted batch, starting at 0.
+     */
+    public int index;
+    /**
+     * The id generated for the message. Null if the message was not inserted.
+     */
+    public Integer message_id;
+    /**
+     * Why the message was not inserted. Null if it was inserted.
+     */
+    public String error;
+
+    public MessageBatchResult() {
+    }
+
+    /**
+     * @param index
+     * @param message_id
+     * @param error
+     */
+    public MessageBatchResult(int index, Integer message_id, String error) {
+        this.index = index;
+        this.message_id = message_id;
+        this.error = error;
+    }
+
+    /**
+     * @return index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return message_id
+     */
+    public Integer getMessage_id() {
+        return message_id;
+    }
+
+    /**
+     * @return error
+     */
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageBatchResult{" +
+                "index=" + index +
+                ", message_id=" + message_id +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,48 @@
+package Model;
+
+import java.util.List;
+
+/**
+ * This is a class that models one page of a keyset-paginated message listing.
+ */
+public class MessagePage {
+    /**
+     * The messages on this page, in message_id order, or in time_posted_epoch order for a time range.
+     */
+    public List<Message> messages;
+    /**
+     * Opaque cursor to pass as "after" to fetch the next page. Null when this is the last page.
+     */
+    public String next_cursor;
+
+    /**
+     * @param messages
+     * @param next_cursor
+     */
+    public MessagePage(List<Message> messages, String next_cursor) {
+        this.messages = messages;
+        this.next_cursor = next_cursor;
+    }
+
+    /**
+     * @return messages
+     */
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return next_cursor
+     */
+    public String getNext_cursor() {
+        return next_cursor;
+    }
+
+    @Override
+    public String toString() {
+        return "MessagePage{" +
+                "messages=" + messages +
+                ", next_cursor='" + next_cursor + '\'' +
+                '}';
+    }
+}
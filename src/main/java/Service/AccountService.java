@@ -1,20 +1,52 @@
 package Service;
 
+import java.io.IOException;
+
 import DAO.AccountDAO;
+import DAO.ConstraintViolationException;
 import Model.Account;
+import Util.BloomFilter;
+import Util.BloomFilterStats;
+import Util.Config;
 
 public class AccountService {
 
     private AccountDAO accountDAO;
+    private KnownAccounts knownAccounts;
+
+    /**
+     * every username in the account table. A name the filter has never seen
+     * goes straight to the insert; a name it might have seen is looked up
+     * first, so a taken name costs a select instead of a rejected insert
+     */
+    private BloomFilter usernameFilter;
 
     public AccountService() {
+        this(new KnownAccounts());
+    }
+
+    /**
+     * @param knownAccounts shared with MessageService so that newly registered
+     *                      accounts can post without an account lookup
+     */
+    public AccountService(KnownAccounts knownAccounts) {
         accountDAO = new AccountDAO();
+        this.knownAccounts = knownAccounts;
+        usernameFilter = new BloomFilter(Config.getLong("bloom.usernames.expectedInsertions", 1000000),
+                Config.getDouble("bloom.usernames.falsePositiveRate", 0.01));
+        try {
+            accountDAO.streamUsernames(usernameFilter::add);
+        } catch (IOException e) {
+            // adding to the filter cannot fail
+            e.printStackTrace();
+        }
     }
 
     /**
      * validates the format of username and password
-     * verify username is not taken
-     * insert new account into account table
+     * rejects a username the filter has seen and the account table holds
+     * insert new account into account table, which verifies that the username
+     * is not taken through its unique constraint
      * 
      * @param act
      * @return Account
@@ -24,13 +56,36 @@ public class AccountService {
         if (act.username.isBlank() || act.password.length() < 4) {
             return null;
         }
-        // verify username is not taken
-        Account usernameLpokup = accountDAO.selectAccountByUsername(act.username);
-        if (usernameLpokup != null) {
+        // the filter has no false negatives, so only a name it has seen can be
+        // taken. Such names are usually taken, and a select answers that more
+        // cheaply than an insert the unique constraint rejects
+        if (usernameFilter.mightContain(act.username)) {
+            if (accountDAO.selectAccountByUsername(act.username) != null) {
+                return null;
+            }
+            usernameFilter.recordFalsePositive();
+        }
+        // inserts into table. A taken username is rejected by the unique
+        // constraint, which also covers two registrations racing for one name
+        Account inserted;
+        try {
+            inserted = accountDAO.insertAccount(act);
+        } catch (ConstraintViolationException e) {
             return null;
         }
-        // inserts into table
-        return accountDAO.insertAccount(act);
+        if (inserted != null) {
+            knownAccounts.add(inserted.account_id);
+            usernameFilter.add(inserted.username);
+        }
+        return inserted;
+    }
+
+    /**
+     * @return BloomFilterStats counters of the username filter used by
+     *         postRegister
+     */
+    public BloomFilterStats getUsernameFilterStats() {
+        return usernameFilter.getStats();
     }
 
     /**
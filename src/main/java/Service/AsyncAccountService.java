@@ -0,0 +1,42 @@
+package Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import Model.Account;
+
+/**
+ * Runs AccountService calls on a database executor so the calling thread is
+ * free while JDBC blocks. Every method returns a future of what the matching
+ * AccountService method returns.
+ */
+public class AsyncAccountService {
+
+    private AccountService accountService;
+    private Executor executor;
+
+    /**
+     * @param accountService the blocking service to delegate to
+     * @param executor       runs the blocking calls
+     */
+    public AsyncAccountService(AccountService accountService, Executor executor) {
+        this.accountService = accountService;
+        this.executor = executor;
+    }
+
+    /**
+     * @param act
+     * @return CompletableFuture<Account> see AccountService.postRegister
+     */
+    public CompletableFuture<Account> postRegister(Account act) {
+        return CompletableFuture.supplyAsync(() -> accountService.postRegister(act), executor);
+    }
+
+    /**
+     * @param act
+     * @return CompletableFuture<Account> see AccountService.postLogin
+     */
+    public CompletableFuture<Account> postLogin(Account act) {
+        return CompletableFuture.supplyAsync(() -> accountService.postLogin(act), executor);
+    }
+}
@@ -0,0 +1,155 @@
+package Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import Model.Message;
+import Model.MessageBatchResult;
+import Model.MessagePage;
+
+/**
+ * Runs MessageService calls on a database executor so the calling thread is
+ * free while JDBC blocks. Every method returns a future of what the matching
+ * MessageService method returns.
+ */
+public class AsyncMessageService {
+
+    private MessageService messageService;
+    private Executor executor;
+
+    /**
+     * @param messageService the blocking service to delegate to
+     * @param executor       runs the blocking calls
+     */
+    public AsyncMessageService(MessageService messageService, Executor executor) {
+        this.messageService = messageService;
+        this.executor = executor;
+    }
+
+    /**
+     * with group commit the executor thread only queues the message; the
+     * returned future is the committer's, so it does not wait for the group
+     * 
+     * @param msg
+     * @return CompletableFuture<Message> see MessageService.postMessageAsync
+     */
+    public CompletableFuture<Message> postMessage(Message msg) {
+        return CompletableFuture.supplyAsync(() -> messageService.postMessageAsync(msg), executor)
+                .thenCompose(posted -> posted);
+    }
+
+    /**
+     * @param msgs
+     * @return CompletableFuture<List<MessageBatchResult>> see
+     *         MessageService.postMessages
+     */
+    public CompletableFuture<List<MessageBatchResult>> postMessages(List<Message> msgs) {
+        return CompletableFuture.supplyAsync(() -> messageService.postMessages(msgs), executor);
+    }
+
+    /**
+     * @return CompletableFuture<List<Message>> see MessageService.getAllMessages
+     */
+    public CompletableFuture<List<Message>> getAllMessages() {
+        return CompletableFuture.supplyAsync(messageService::getAllMessages, executor);
+    }
+
+    /**
+     * @param message_id
+     * @return CompletableFuture<Message> see MessageService.getMessageByMessageId
+     */
+    public CompletableFuture<Message> getMessageByMessageId(int message_id) {
+        return CompletableFuture.supplyAsync(() -> messageService.getMessageByMessageId(message_id), executor);
+    }
+
+    /**
+     * @param account_id
+     * @return CompletableFuture<List<Message>> see
+     *         MessageService.getMessagesByAccountId
+     */
+    public CompletableFuture<List<Message>> getMessagesByAccountId(int account_id) {
+        return CompletableFuture.supplyAsync(() -> messageService.getMessagesByAccountId(account_id), executor);
+    }
+
+    /**
+     * @param after
+     * @param limit
+     * @return CompletableFuture<MessagePage> see MessageService.getMessagesPage
+     */
+    public CompletableFuture<MessagePage> getMessagesPage(String after, int limit) {
+        return CompletableFuture.supplyAsync(() -> messageService.getMessagesPage(after, limit), executor);
+    }
+
+    /**
+     * @param account_id
+     * @param after
+     * @param limit
+     * @return CompletableFuture<MessagePage> see
+     *         MessageService.getMessagesPageByAccountId
+     */
+    public CompletableFuture<MessagePage> getMessagesPageByAccountId(int account_id, String after, int limit) {
+        return CompletableFuture.supplyAsync(
+                () -> messageService.getMessagesPageByAccountId(account_id, after, limit), executor);
+    }
+
+    /**
+     * @param since
+     * @param until
+     * @param after
+     * @param limit
+     * @return CompletableFuture<MessagePage> see
+     *         MessageService.getMessagesPageInTimeRange
+     */
+    public CompletableFuture<MessagePage> getMessagesPageInTimeRange(long since, long until, String after,
+            int limit) {
+        return CompletableFuture.supplyAsync(
+                () -> messageService.getMessagesPageInTimeRange(since, until, after, limit), executor);
+    }
+
+    /**
+     * @param account_id
+     * @param since
+     * @param until
+     * @param after
+     * @param limit
+     * @return CompletableFuture<MessagePage> see
+     *         MessageService.getMessagesPageByAccountIdInTimeRange
+     */
+    public CompletableFuture<MessagePage> getMessagesPageByAccountIdInTimeRange(int account_id, long since,
+            long until, String after, int limit) {
+        return CompletableFuture.supplyAsync(
+                () -> messageService.getMessagesPageByAccountIdInTimeRange(account_id, since, until, after, limit),
+                executor);
+    }
+
+    /**
+     * @param query
+     * @param after
+     * @param limit
+     * @return CompletableFuture<MessagePage> see MessageService.searchMessages
+     */
+    public CompletableFuture<MessagePage> searchMessages(String query, String after, int limit) {
+        return CompletableFuture.supplyAsync(() -> messageService.searchMessages(query, after, limit), executor);
+    }
+
+    /**
+     * @param message_id
+     * @param msg
+     * @return CompletableFuture<Message> see
+     *         MessageService.patchMessageByMessageIdAndMessage
+     */
+    public CompletableFuture<Message> patchMessageByMessageIdAndMessage(int message_id, Message msg) {
+        return CompletableFuture.supplyAsync(
+                () -> messageService.patchMessageByMessageIdAndMessage(message_id, msg), executor);
+    }
+
+    /**
+     * @param message_id
+     * @return CompletableFuture<Message> see
+     *         MessageService.deleteMessageByMessageId
+     */
+    public CompletableFuture<Message> deleteMessageByMessageId(int message_id) {
+        return CompletableFuture.supplyAsync(() -> messageService.deleteMessageByMessageId(message_id), executor);
+    }
+}
@@ -0,0 +1,90 @@
+package Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import DAO.AccountDAO;
+import Util.ConcurrentIntSet;
+
+/**
+ * KnownAccounts remembers which account_ids exist so that posting does not
+ * need an account lookup. It is warmed from the account table when it is
+ * created and learns about new accounts as AccountService registers them and
+ * as posts from unknown ids succeed.
+ *
+ * Accounts are never deleted, so a remembered id stays valid. An id that is not
+ * remembered may still exist (e.g. registered by another process), so callers
+ * treat a miss as "ask the database", never as "does not exist".
+ */
+public class KnownAccounts {
+
+    private AccountDAO accountDAO;
+    private ConcurrentIntSet accountIds;
+
+    public KnownAccounts() {
+        this(new AccountDAO());
+    }
+
+    public KnownAccounts(AccountDAO accountDAO) {
+        this.accountDAO = accountDAO;
+        this.accountIds = new ConcurrentIntSet(1024);
+        warm();
+    }
+
+    /**
+     * load every existing account_id from the account table
+     */
+    private void warm() {
+        try {
+            accountDAO.streamAccountIds(accountIds::add);
+        } catch (IOException e) {
+            // adding to the set cannot fail
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @param account_id
+     * @return boolean true if account_id is known to exist
+     */
+    public boolean contains(int account_id) {
+        return accountIds.contains(account_id);
+    }
+
+    /**
+     * remember that account_id exists
+     *
+     * @param account_id
+     */
+    public void add(int account_id) {
+        accountIds.add(account_id);
+    }
+
+    /**
+     * find which of account_ids exist, asking the database only about the ones
+     * that are not already known
+     *
+     * @param account_ids
+     * @return Set<Integer> the account_ids that exist
+     */
+    public Set<Integer> existing(Collection<Integer> account_ids) {
+        Set<Integer> existing = new HashSet<>();
+        List<Integer> unknown = new ArrayList<>();
+        for (int account_id : account_ids) {
+            if (accountIds.contains(account_id)) {
+                existing.add(account_id);
+            } else {
+                unknown.add(account_id);
+            }
+        }
+        for (int account_id : accountDAO.selectExistingAccountIds(unknown)) {
+            accountIds.add(account_id);
+            existing.add(account_id);
+        }
+        return existing;
+    }
+}
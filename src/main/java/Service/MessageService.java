@@ -1,42 +1,302 @@
 package Service;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
-import DAO.AccountDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import DAO.ConstraintViolationException;
 import DAO.MessageDAO;
-import Model.Account;
+import DAO.QueryRunner;
 import Model.Message;
+import Model.MessageBatchResult;
+import Model.MessagePage;
+import Util.CacheStats;
+import Util.Config;
+import Util.GroupCommitStats;
+import Util.GroupCommitter;
+import Util.InvertedIndex;
+import Util.TtlCache;
+import Util.VersionTable;
 
 public class MessageService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(MessageService.class);
+
+    /**
+     * page size used when a client asks for a page without giving a limit
+     */
+    public static final int DEFAULT_PAGE_LIMIT = Config.getInt("page.defaultLimit", 100);
+    /**
+     * largest page a client may ask for; larger limits are clamped to this
+     */
+    public static final int MAX_PAGE_LIMIT = Config.getInt("page.maxLimit", 1000);
+    /**
+     * most messages a client may post in one batch
+     */
+    public static final int MAX_BATCH_SIZE = Config.getInt("batch.maxSize", 1000);
+
+    private static final int WRITE_LOCK_STRIPES = 256;
+
     private MessageDAO messageDAO;
-    private AccountDAO accountDAO;
+    /**
+     * account_ids known to exist. Batch posts only ask the database about
+     * posters it does not know, and with group commit only known posters join
+     * a group, so an unknown posted_by cannot make the whole group fail
+     */
+    private KnownAccounts knownAccounts;
+
+    /**
+     * read-through cache of messages by message_id. Writes made through this
+     * service invalidate the entry once they are committed and only readers
+     * fill it; writes made behind its back are picked up once the entry's time
+     * to live runs out
+     */
+    private TtlCache<Integer, Message> messageCache;
+
+    /**
+     * versions of each message and of the list of messages each account has
+     * posted. Every write made through this service bumps them once it is
+     * committed, so a reader that takes a version before reading can later
+     * tell whether its copy is still current without asking the database
+     */
+    private VersionTable messageVersions;
+    private VersionTable accountMessagesVersions;
+
+    /**
+     * the most recent messages of each account, kept up to date by every write
+     * made through this service. Null if socialmedia.timeline.enabled is false
+     */
+    private TimelineStore timelines;
+
+    /**
+     * words of every message_text, built from the message table when the
+     * service starts and kept up to date by every write made through this
+     * service. Null if socialmedia.search.enabled is false
+     */
+    private InvertedIndex searchIndex;
+
+    /**
+     * patches and deletes of one message hold one of these locks from their
+     * statement until committed() returns, so the search index sees them in
+     * commit order; the index diffs each patch against the text before it,
+     * and a diff applied out of order would lose words for good. Posts do not
+     * take it: a post applied after a racing patch or delete can only leave
+     * extra words behind, which searchMessages filters out. Locks are shared
+     * by message_id modulo their number
+     */
+    private final ReentrantLock[] writeLocks = new ReentrantLock[WRITE_LOCK_STRIPES];
+
+    /**
+     * when socialmedia.groupCommit.enabled is set, postMessage hands its insert
+     * to this writer, which commits concurrent posts together. Null otherwise
+     */
+    private GroupCommitter<Message, Message> groupCommitter;
 
     public MessageService() {
+        this(new KnownAccounts());
+    }
+
+    /**
+     * @param knownAccounts shared with AccountService so that newly registered
+     *                      accounts are known to both
+     */
+    public MessageService(KnownAccounts knownAccounts) {
         messageDAO = new MessageDAO();
-        accountDAO = new AccountDAO();
+        this.knownAccounts = knownAccounts;
+        for (int i = 0; i < writeLocks.length; i++) {
+            writeLocks[i] = new ReentrantLock();
+        }
+        messageCache = new TtlCache<>(Config.getInt("cache.messages.maxEntries", 10000),
+                Config.getLong("cache.messages.ttlMillis", 60000));
+        messageVersions = new VersionTable(Config.getInt("versions.slots", 16384));
+        accountMessagesVersions = new VersionTable(Config.getInt("versions.slots", 16384));
+        if (Config.getBoolean("timeline.enabled", true)) {
+            timelines = new TimelineStore(Config.getInt("timeline.maxAccounts", 1000),
+                    Config.getInt("timeline.maxMessages", 100), Config.getLong("timeline.ttlMillis", 60000),
+                    Config.getInt("versions.slots", 16384), messageDAO::selectRecentMessagesByPostedBy);
+        }
+        if (Config.getBoolean("search.enabled", true)) {
+            searchIndex = buildSearchIndex();
+        }
+        if (Config.getBoolean("groupCommit.enabled", false)) {
+            groupCommitter = new GroupCommitter<>("message-group-commit", this::insertGroup,
+                    Config.getInt("groupCommit.maxBatchSize", 256), Config.getLong("groupCommit.maxDelayMillis", 2),
+                    Config.getInt("groupCommit.queueCapacity", 10000));
+        }
     }
 
     /**
      * validate message format
-     * verify user exists
-     * insert new message into message table
+     * insert new message into message table, which verifies that the user
+     * exists through the posted_by foreign key
      * 
      * @param msg
      * @return Message
      */
     public Message postMessage(Message msg) {
+        return postMessageAsync(msg).join();
+    }
+
+    /**
+     * postMessage without waiting for a group commit. Without group commit, or
+     * for an unknown poster, the insert runs on the calling thread and the
+     * future is already complete. Otherwise the message is queued and the future
+     * completes on the committer's writer thread once its group is written, so
+     * no thread waits while the group fills up
+     * 
+     * @param msg
+     * @return CompletableFuture<Message> see postMessage
+     */
+    public CompletableFuture<Message> postMessageAsync(Message msg) {
         // validate message format
         if (msg.message_text.isBlank() || msg.message_text.length() > 255) {
-            return null;
+            return CompletableFuture.completedFuture(null);
+        }
+        // insert new message into message table. A posted_by that does not refer
+        // to an account is rejected by the foreign key
+        long timelineStamp = timelineStamp(msg.posted_by);
+        // an unknown poster is inserted on its own: if the foreign key rejects
+        // it, it must not take a group of good posts down with it
+        boolean known = knownAccounts.contains(msg.posted_by);
+        if (groupCommitter == null || !known) {
+            Message inserted = insertOne(msg);
+            if (inserted != null) {
+                if (!known) {
+                    knownAccounts.add(inserted.posted_by);
+                }
+                committed(null, inserted, timelineStamp);
+            }
+            return CompletableFuture.completedFuture(inserted);
         }
-        // verify user exists
-        Account idLookup = accountDAO.selectAccountByAccountId(msg.posted_by);
-        if (idLookup == null) {
+        return groupCommitter.submit(msg).handle((grouped, e) -> {
+            Message inserted = grouped;
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                // the committer is closed while the server shuts down; requests
+                // still in flight are written directly. Its future is then already
+                // failed, so this runs on the calling thread
+                inserted = cause instanceof IllegalStateException ? insertOne(msg) : null;
+            }
+            if (inserted != null) {
+                committed(null, inserted, timelineStamp);
+            }
+            return inserted;
+        });
+    }
+
+    /**
+     * @param msg
+     * @return Message the inserted message. Null if it was rejected
+     */
+    private Message insertOne(Message msg) {
+        try {
+            return messageDAO.insertMessage(msg);
+        } catch (ConstraintViolationException e) {
             return null;
         }
-        // insert new message into message table
-        return messageDAO.insertMessage(msg);
+    }
+
+    /**
+     * flush function of the group committer: insert msgs in one transaction.
+     * A single bad posted_by makes the database reject the whole batch, so the
+     * group is then retried row by row and only the bad rows fail
+     *
+     * @param msgs
+     * @return List<Message> one inserted message or null per message of msgs
+     */
+    private List<Message> insertGroup(List<Message> msgs) {
+        try {
+            List<Message> inserted = messageDAO.insertMessages(msgs);
+            if (inserted.size() == msgs.size()) {
+                return inserted;
+            }
+        } catch (ConstraintViolationException e) {
+            // fall through to row by row
+        }
+        List<Message> inserted = new ArrayList<>(msgs.size());
+        for (Message msg : msgs) {
+            inserted.add(insertOne(msg));
+        }
+        return inserted;
+    }
+
+    /**
+     * validate the format of every message
+     * verify every poster with one query
+     * insert the valid messages in one transaction
+     * 
+     * @param msgs at most MAX_BATCH_SIZE messages
+     * @return List<MessageBatchResult> one result per message, in the order of
+     *         msgs, holding either the generated message_id or the reason the
+     *         message was rejected
+     */
+    public List<MessageBatchResult> postMessages(List<Message> msgs) {
+        MessageBatchResult[] results = new MessageBatchResult[msgs.size()];
+        // validate message format
+        List<Integer> pending = new ArrayList<>();
+        Set<Integer> posters = new HashSet<>();
+        for (int i = 0; i < msgs.size(); i++) {
+            Message msg = msgs.get(i);
+            if (msg == null || msg.message_text == null || msg.message_text.isBlank()
+                    || msg.message_text.length() > 255) {
+                results[i] = new MessageBatchResult(i, null, "message_text must be 1 to 255 characters");
+            } else {
+                pending.add(i);
+                posters.add(msg.posted_by);
+            }
+        }
+        // verify every poster exists, asking the database only about posters
+        // that are not known yet
+        Set<Integer> knownPosters = knownAccounts.existing(posters);
+        List<Message> accepted = new ArrayList<>(pending.size());
+        List<Integer> acceptedIndexes = new ArrayList<>(pending.size());
+        for (int i : pending) {
+            if (knownPosters.contains(msgs.get(i).posted_by)) {
+                accepted.add(msgs.get(i));
+                acceptedIndexes.add(i);
+            } else {
+                results[i] = new MessageBatchResult(i, null, "posted_by does not refer to an account");
+            }
+        }
+        // insert the remaining messages together
+        Map<Integer, Long> timelineStamps = new HashMap<>();
+        for (Message msg : accepted) {
+            timelineStamps.computeIfAbsent(msg.posted_by, this::timelineStamp);
+        }
+        List<Message> inserted;
+        try {
+            inserted = messageDAO.insertMessages(accepted);
+        } catch (ConstraintViolationException e) {
+            inserted = List.of();
+        }
+        for (int j = 0; j < acceptedIndexes.size(); j++) {
+            int i = acceptedIndexes.get(j);
+            if (j < inserted.size()) {
+                Message message = inserted.get(j);
+                committed(null, message, timelineStamps.get(message.posted_by));
+                results[i] = new MessageBatchResult(i, message.message_id, null);
+            } else {
+                results[i] = new MessageBatchResult(i, null, "message could not be inserted");
+            }
+        }
+        return List.of(results);
     }
 
     /**
@@ -55,23 +315,196 @@ public class MessageService {
      * @return Message possibly empty message
      */
     public Message getMessageByMessageId(int message_id) {
-        return messageDAO.selectMessageByMessageId(message_id);
+        Message cached = messageCache.get(message_id);
+        if (cached != null) {
+            return cached;
+        }
+        // a write between the stamp and the put means the loaded row may be stale
+        long stamp = messageCache.stamp(message_id);
+        Message message = messageDAO.selectMessageByMessageId(message_id);
+        if (message != null) {
+            messageCache.putIfUnchanged(message_id, message, stamp);
+        }
+        return message;
     }
 
     /**
-     * retrieve all message posted by account_id
+     * retrieve all message posted by account_id, from the account's timeline
+     * if it holds all of them
      * 
      * @param account_id
      * @return List<Message> possibly empty list of messages
      */
     public List<Message> getMessagesByAccountId(int account_id) {
+        if (timelines != null) {
+            List<Message> messages = timelines.messagesAfter(account_id, 0, Integer.MAX_VALUE);
+            if (messages != null) {
+                return messages;
+            }
+        }
         return messageDAO.selectMessagesByPostedBy(account_id);
     }
 
+    /**
+     * streams every message in the message table to sink in message_id order
+     * 
+     * @param sink receives each message as it is read
+     * @return boolean true if every message was delivered
+     * @throws IOException if sink fails
+     */
+    public boolean streamAllMessages(QueryRunner.Sink<Message> sink) throws IOException {
+        return messageDAO.streamAllMessages(sink);
+    }
+
+    /**
+     * streams every message posted by account_id to sink in message_id order
+     * 
+     * @param account_id
+     * @param sink       receives each message as it is read
+     * @return boolean true if every message was delivered
+     * @throws IOException if sink fails
+     */
+    public boolean streamMessagesByAccountId(int account_id, QueryRunner.Sink<Message> sink) throws IOException {
+        return messageDAO.streamMessagesByPostedBy(account_id, sink);
+    }
+
+    /**
+     * retrieve one page of all messages in message_id order
+     * 
+     * @param after cursor returned with the previous page. Null for the first page
+     * @param limit maximum number of messages on the page
+     * @return MessagePage possibly empty page of messages
+     * @throws IllegalArgumentException if after is not a valid cursor
+     */
+    public MessagePage getMessagesPage(String after, int limit) {
+        int pageSize = clampPageLimit(limit);
+        // fetch one extra row to learn whether another page follows
+        List<Message> messages = messageDAO.selectMessagesAfter(PageCursor.decode(after), pageSize + 1);
+        return toPage(messages, pageSize);
+    }
+
+    /**
+     * retrieve one page of the messages posted by account_id in message_id
+     * order, from the account's timeline if it holds the whole page
+     * 
+     * @param account_id
+     * @param after      cursor returned with the previous page. Null for the first
+     *                   page
+     * @param limit      maximum number of messages on the page
+     * @return MessagePage possibly empty page of messages
+     * @throws IllegalArgumentException if after is not a valid cursor
+     */
+    public MessagePage getMessagesPageByAccountId(int account_id, String after, int limit) {
+        int pageSize = clampPageLimit(limit);
+        int after_id = PageCursor.decode(after);
+        List<Message> messages = timelines == null ? null
+                : timelines.messagesAfter(account_id, after_id, pageSize + 1);
+        if (messages == null) {
+            messages = messageDAO.selectMessagesByPostedByAfter(account_id, after_id, pageSize + 1);
+        }
+        return toPage(messages, pageSize);
+    }
+
+    /**
+     * retrieve one page of the messages with since <= time_posted_epoch < until,
+     * in (time_posted_epoch, message_id) order
+     * 
+     * @param since inclusive start of the range
+     * @param until exclusive end of the range
+     * @param after cursor returned with the previous page. Null for the first page
+     * @param limit maximum number of messages on the page
+     * @return MessagePage possibly empty page of messages
+     * @throws IllegalArgumentException if after is not a valid time range cursor
+     */
+    public MessagePage getMessagesPageInTimeRange(long since, long until, String after, int limit) {
+        int pageSize = clampPageLimit(limit);
+        PageCursor.TimePosition position = startOfTimeRange(since, after);
+        List<Message> messages = messageDAO.selectMessagesInTimeRange(position.time_posted_epoch,
+                position.message_id, until, pageSize + 1);
+        return toTimePage(messages, pageSize);
+    }
+
+    /**
+     * retrieve one page of the messages posted by account_id with since <=
+     * time_posted_epoch < until, in (time_posted_epoch, message_id) order
+     * 
+     * @param account_id
+     * @param since      inclusive start of the range
+     * @param until      exclusive end of the range
+     * @param after      cursor returned with the previous page. Null for the
+     *                   first page
+     * @param limit      maximum number of messages on the page
+     * @return MessagePage possibly empty page of messages
+     * @throws IllegalArgumentException if after is not a valid time range cursor
+     */
+    public MessagePage getMessagesPageByAccountIdInTimeRange(int account_id, long since, long until, String after,
+            int limit) {
+        int pageSize = clampPageLimit(limit);
+        PageCursor.TimePosition position = startOfTimeRange(since, after);
+        List<Message> messages = messageDAO.selectMessagesByPostedByInTimeRange(account_id,
+                position.time_posted_epoch, position.message_id, until, pageSize + 1);
+        return toTimePage(messages, pageSize);
+    }
+
+    /**
+     * @param since
+     * @param after
+     * @return PageCursor.TimePosition the position after, or the start of the
+     *         range if after is null or lies before since
+     */
+    private static PageCursor.TimePosition startOfTimeRange(long since, String after) {
+        PageCursor.TimePosition position = PageCursor.decodeTime(after);
+        if (position == null || position.time_posted_epoch < since) {
+            return new PageCursor.TimePosition(since, 0);
+        }
+        return position;
+    }
+
+    /**
+     * @param limit requested page size
+     * @return int limit bounded to [1, MAX_PAGE_LIMIT]
+     */
+    private static int clampPageLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+    }
+
+    /**
+     * trims the look-ahead row off messages and derives the next cursor from it
+     * 
+     * @param messages up to pageSize + 1 messages in message_id order
+     * @param pageSize
+     * @return MessagePage
+     */
+    private static MessagePage toPage(List<Message> messages, int pageSize) {
+        if (messages.size() <= pageSize) {
+            return new MessagePage(messages, null);
+        }
+        List<Message> page = messages.subList(0, pageSize);
+        return new MessagePage(page, PageCursor.encode(page.get(pageSize - 1).message_id));
+    }
+
+    /**
+     * trims the look-ahead row off messages and derives the next time range
+     * cursor from it
+     * 
+     * @param messages up to pageSize + 1 messages in (time_posted_epoch,
+     *                 message_id) order
+     * @param pageSize
+     * @return MessagePage
+     */
+    private static MessagePage toTimePage(List<Message> messages, int pageSize) {
+        if (messages.size() <= pageSize) {
+            return new MessagePage(messages, null);
+        }
+        List<Message> page = messages.subList(0, pageSize);
+        Message last = page.get(pageSize - 1);
+        return new MessagePage(page, PageCursor.encode(last.time_posted_epoch, last.message_id));
+    }
+
     /**
      * validate message format
-     * verify old message exists
-     * update old message_text
+     * update old message_text in one statement, which also verifies that the
+     * old message exists
      * 
      * @param message_id the old message to be updated
      * @param msg        the new message to replace the old message
@@ -81,11 +514,23 @@ public class MessageService {
         if (msg.message_text.isBlank() || msg.message_text.length() > 255) {
             return null;
         }
-        Message idLookup = messageDAO.selectMessageByMessageId(message_id);
-        if (idLookup == null) {
-            return null;
+        // the update returns the row as it was, or null if message_id does not
+        // exist. Only message_text changes, and the old text is what the search
+        // index has to forget
+        ReentrantLock lock = writeLock(message_id);
+        lock.lock();
+        try {
+            Message old = messageDAO.updateMessageByMessageIdReturningOld(message_id, msg);
+            if (old == null) {
+                messageCache.invalidate(message_id);
+                return null;
+            }
+            Message updated = new Message(old.message_id, old.posted_by, msg.message_text, old.time_posted_epoch);
+            committed(old, updated, 0);
+            return updated;
+        } finally {
+            lock.unlock();
         }
-        return messageDAO.updateMessageByMessageIdAndMessage(message_id, msg);
     }
 
     /**
@@ -95,7 +540,253 @@ public class MessageService {
      * @return Message the message that is deleted. Possibly empty
      */
     public Message deleteMessageByMessageId(int message_id) {
-        return messageDAO.deleteMessageByMessageId(message_id);
+        ReentrantLock lock = writeLock(message_id);
+        lock.lock();
+        try {
+            Message deleted = messageDAO.deleteMessageByMessageId(message_id);
+            if (deleted == null) {
+                messageCache.invalidate(message_id);
+            } else {
+                committed(deleted, null, 0);
+            }
+            return deleted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param message_id
+     * @return ReentrantLock the lock that patches and deletes of message_id hold
+     *         from their statement until committed() returns
+     */
+    private ReentrantLock writeLock(int message_id) {
+        return writeLocks[message_id & (writeLocks.length - 1)];
+    }
+
+    /**
+     * @param account_id
+     * @return long the stamp of the account's timeline, to take before one of
+     *         its messages is inserted. 0 if timelines are disabled
+     */
+    private long timelineStamp(int account_id) {
+        return timelines == null ? 0 : timelines.stamp(account_id);
+    }
+
+    /**
+     * drop the cached copy of a committed write, apply it to the search index
+     * and the poster's timeline, then mark the message and the messages of its
+     * poster as changed
+     * 
+     * @param before        the message before the write. Null for a post
+     * @param after         the message as written. Null for a delete
+     * @param timelineStamp for a post, timelineStamp(posted_by) taken before the
+     *                      insert. Unused for patches and deletes
+     */
+    private void committed(Message before, Message after, long timelineStamp) {
+        Message message = after != null ? after : before;
+        // writers only ever invalidate, since a put made after a racing patch or
+        // delete had committed would cache a row that no longer exists. The
+        // versions move last, so a reader that sees the new version can only
+        // find the new row
+        messageCache.invalidate(message.message_id);
+        if (searchIndex != null) {
+            if (before == null) {
+                searchIndex.add(after.message_id, after.message_text);
+            } else if (after == null) {
+                searchIndex.remove(before.message_id, before.message_text);
+            } else {
+                searchIndex.update(after.message_id, before.message_text, after.message_text);
+            }
+        }
+        if (timelines != null) {
+            // patches and deletes of one message are not applied in commit order,
+            // so the timeline is filled again rather than edited
+            if (before == null) {
+                timelines.put(after, timelineStamp);
+            } else {
+                timelines.invalidate(message.posted_by);
+            }
+        }
+        messageVersions.bump(message.message_id);
+        accountMessagesVersions.bump(message.posted_by);
+    }
+
+    /**
+     * @param message_id
+     * @return long changes whenever the message with message_id is posted,
+     *         patched or deleted through this service. Take it before reading
+     *         the message
+     */
+    public long getMessageVersion(int message_id) {
+        return messageVersions.version(message_id);
+    }
+
+    /**
+     * @param account_id
+     * @return long changes whenever a message posted by account_id is posted,
+     *         patched or deleted through this service. Take it before reading
+     *         the messages
+     */
+    public long getAccountMessagesVersion(int account_id) {
+        return accountMessagesVersions.version(account_id);
+    }
+
+    /**
+     * @return boolean true if searchMessages is available
+     */
+    public boolean isSearchEnabled() {
+        return searchIndex != null;
+    }
+
+    /**
+     * retrieve one page of the messages whose text contains every word of
+     * query, in message_id order
+     * 
+     * @param query words to look for; case and punctuation are ignored
+     * @param after cursor returned with the previous page. Null for the first page
+     * @param limit maximum number of messages on the page
+     * @return MessagePage possibly empty page of messages
+     * @throws IllegalArgumentException if query has no words or after is not a
+     *                                  valid cursor
+     * @throws IllegalStateException    if search is disabled
+     */
+    public MessagePage searchMessages(String query, String after, int limit) {
+        if (searchIndex == null) {
+            throw new IllegalStateException("socialmedia.search.enabled is false");
+        }
+        List<String> terms = InvertedIndex.terms(query);
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("query has no words");
+        }
+        int pageSize = clampPageLimit(limit);
+        // fetch one extra id to learn whether another page follows
+        int[] ids = searchIndex.search(terms, PageCursor.decode(after), pageSize + 1);
+        String next = ids.length > pageSize ? PageCursor.encode(ids[pageSize - 1]) : null;
+        return new MessagePage(loadMatching(Arrays.copyOf(ids, Math.min(ids.length, pageSize)), terms), next);
+    }
+
+    /**
+     * load the messages with ids, from the cache where possible and otherwise
+     * with one query
+     * 
+     * @param ids   message_ids in ascending order
+     * @param terms
+     * @return List<Message> the messages of ids that still exist and still
+     *         contain every one of terms, in the order of ids
+     */
+    private List<Message> loadMatching(int[] ids, List<String> terms) {
+        Map<Integer, Message> found = new HashMap<>();
+        int[] missing = new int[ids.length];
+        int missingCount = 0;
+        for (int id : ids) {
+            Message cached = messageCache.get(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing[missingCount++] = id;
+            }
+        }
+        for (Message message : messageDAO.selectMessagesByMessageIds(Arrays.copyOf(missing, missingCount))) {
+            found.put(message.message_id, message);
+        }
+        List<Message> messages = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Message message = found.get(id);
+            // a write racing the search, or one made behind the service's back,
+            // can leave the index briefly out of step with the row
+            if (message != null && InvertedIndex.terms(message.message_text).containsAll(terms)) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * build the search index from the message table. Ranges of
+     * socialmedia.search.rebuildChunkSize message_ids are read and indexed by
+     * socialmedia.search.rebuildThreads threads at once, and the indexes of
+     * the ranges are then appended in message_id order
+     * 
+     * @return InvertedIndex
+     * @throws IllegalStateException if the message table cannot be read
+     */
+    private InvertedIndex buildSearchIndex() {
+        long start = System.nanoTime();
+        int maxId = messageDAO.selectMaxMessageId();
+        if (maxId < 0) {
+            throw new IllegalStateException("Cannot read the message table to build the search index");
+        }
+        int chunkSize = Math.max(1, Config.getInt("search.rebuildChunkSize", 50000));
+        int threads = Math.max(1, Config.getInt("search.rebuildThreads", Runtime.getRuntime().availableProcessors()));
+        AtomicInteger created = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "search-index-rebuild-" + created.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<InvertedIndex>> parts = new ArrayList<>();
+            for (long from = 0; from < maxId; from += chunkSize) {
+                int after_id = (int) from;
+                int last_id = (int) Math.min(from + chunkSize, maxId);
+                parts.add(executor.submit(() -> {
+                    InvertedIndex part = new InvertedIndex();
+                    if (!messageDAO.streamMessagesInRange(after_id, last_id,
+                            message -> part.add(message.message_id, message.message_text))) {
+                        throw new IllegalStateException("Cannot read message_ids " + (after_id + 1) + " to " + last_id);
+                    }
+                    return part;
+                }));
+            }
+            InvertedIndex index = new InvertedIndex();
+            for (Future<InvertedIndex> part : parts) {
+                index.appendAll(part.get());
+            }
+            LOG.info("Built the search index up to message_id {} in {} ms: {} words, {} postings", maxId,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), index.getTermCount(),
+                    index.getPostingCount());
+            return index;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cannot build the search index", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the search index", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return CacheStats hit, miss and eviction counters of the message cache
+     */
+    public CacheStats getMessageCacheStats() {
+        return messageCache.getStats();
+    }
+
+    /**
+     * @return CacheStats hit, miss and eviction counters of the account
+     *         timelines. Null if timelines are disabled
+     */
+    public CacheStats getTimelineCacheStats() {
+        return timelines == null ? null : timelines.getStats();
+    }
+
+    /**
+     * @return GroupCommitStats flush size and latency of the group committer.
+     *         Null if group commit is disabled
+     */
+    public GroupCommitStats getGroupCommitStats() {
+        return groupCommitter == null ? null : groupCommitter.getStats();
+    }
+
+    /**
+     * flush every message still queued for group commit and stop the writer
+     */
+    public void close() {
+        if (groupCommitter != null) {
+            groupCommitter.close();
+        }
     }
 
 }
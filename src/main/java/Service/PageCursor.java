@@ -0,0 +1,106 @@
+package Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * PageCursor encodes the position of the last row on a page into an opaque,
+ * URL-safe string that clients hand back as the "after" parameter. Clients
+ * must not depend on its contents.
+ */
+public final class PageCursor {
+
+    private static final String MESSAGE_ID_PREFIX = "m:";
+    private static final String TIME_PREFIX = "t:";
+
+    private PageCursor() {
+    }
+
+    /**
+     * @param message_id the last message_id on the page
+     * @return String opaque cursor
+     */
+    public static String encode(int message_id) {
+        byte[] raw = (MESSAGE_ID_PREFIX + message_id).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * @param time_posted_epoch the last time_posted_epoch on a page of a time
+     *                          range
+     * @param message_id        the last message_id on that page
+     * @return String opaque cursor
+     */
+    public static String encode(long time_posted_epoch, int message_id) {
+        byte[] raw = (TIME_PREFIX + time_posted_epoch + ":" + message_id).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * @param cursor a cursor produced by encode(time_posted_epoch, message_id),
+     *               or null for the first page
+     * @return TimePosition the position to continue after. Null for the first
+     *         page
+     * @throws IllegalArgumentException if the cursor was not produced by
+     *                                  encode(time_posted_epoch, message_id)
+     */
+    public static TimePosition decodeTime(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(TIME_PREFIX)) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            int separator = raw.lastIndexOf(':');
+            long time_posted_epoch = Long.parseLong(raw.substring(TIME_PREFIX.length(), separator));
+            int message_id = Integer.parseInt(raw.substring(separator + 1));
+            if (message_id < 0) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new TimePosition(time_posted_epoch, message_id);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            // also covers bad base64 and NumberFormatException
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+
+    /**
+     * a position in (time_posted_epoch, message_id) order
+     */
+    public static final class TimePosition {
+        public final long time_posted_epoch;
+        public final int message_id;
+
+        TimePosition(long time_posted_epoch, int message_id) {
+            this.time_posted_epoch = time_posted_epoch;
+            this.message_id = message_id;
+        }
+    }
+
+    /**
+     * @param cursor a cursor produced by encode, or null for the first page
+     * @return int the message_id to continue after. 0 for the first page
+     * @throws IllegalArgumentException if the cursor was not produced by encode
+     */
+    public static int decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(MESSAGE_ID_PREFIX)) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            int message_id = Integer.parseInt(raw.substring(MESSAGE_ID_PREFIX.length()));
+            if (message_id < 0) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return message_id;
+        } catch (IllegalArgumentException e) {
+            // also covers bad base64 and NumberFormatException
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+}
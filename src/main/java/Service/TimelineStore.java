@@ -0,0 +1,238 @@
+package Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import Model.Message;
+import Util.CacheStats;
+import Util.TtlCache;
+import Util.VersionTable;
+
+/**
+ * TimelineStore keeps the most recent messages of each account in memory, so
+ * that listings of an account's messages can be answered without a query when
+ * the account has at most maxMessages messages. Listings are oldest first, so
+ * for a larger account only pages past the oldest held message are answered;
+ * its full listing and its first pages always need a query.
+ *
+ * A timeline holds up to maxMessages messages of one account in message_id
+ * order, together with a floor: every message of the account with a
+ * message_id above the floor is held. An account with no more than
+ * maxMessages messages has a floor of 0, so its timeline holds all of them.
+ *
+ * MessageService adds every post to the poster's timeline once it is
+ * committed, and drops the poster's timeline on every patch and delete.
+ * Writers of one account are not ordered, so each account has a version that
+ * moves whenever its timeline is dropped, and a post is only added if its
+ * account's version has not moved since before the insert; otherwise a post
+ * that finishes late could bring back a message deleted in the meantime, or
+ * the text it had before a patch. Versions are kept per account in a
+ * VersionTable rather than per cache segment, so writes to other accounts do
+ * not make posts drop their timelines. An account without a timeline
+ * gets one filled from the database on its next read. Timelines live in a
+ * TtlCache, so at most maxAccounts are held, and writes made behind the
+ * service's back are picked up once a timeline expires.
+ */
+class TimelineStore {
+
+    /**
+     * loads the newest messages of an account
+     */
+    @FunctionalInterface
+    interface Loader {
+        /**
+         * @param account_id
+         * @param limit
+         * @return List<Message> up to limit messages, newest first. Null if they
+         *         could not be read
+         */
+        List<Message> load(int account_id, int limit);
+    }
+
+    private final TtlCache<Integer, Timeline> timelines;
+    /**
+     * bumped whenever an account's timeline is dropped, after the write that
+     * caused it has committed
+     */
+    private final VersionTable versions;
+    private final int maxMessages;
+    private final Loader loader;
+
+    /**
+     * @param maxAccounts  most timelines held at once
+     * @param maxMessages  most messages held per timeline
+     * @param ttlMillis    how long a timeline is kept after it was filled
+     * @param versionSlots number of account versions kept; accounts beyond that
+     *                     share versions
+     * @param loader
+     */
+    TimelineStore(int maxAccounts, int maxMessages, long ttlMillis, int versionSlots, Loader loader) {
+        this.timelines = new TtlCache<>(maxAccounts, ttlMillis);
+        this.versions = new VersionTable(versionSlots);
+        this.maxMessages = Math.max(1, maxMessages);
+        this.loader = loader;
+    }
+
+    /**
+     * @param account_id
+     * @param after_id   exclusive lower bound on message_id. 0 for all messages
+     * @param limit
+     * @return List<Message> up to limit messages of account_id with a message_id
+     *         above after_id, in message_id order. Null if the timeline does not
+     *         hold all of them, in which case the caller has to query. That is
+     *         always the case for after_id 0 once the account has more than
+     *         maxMessages messages
+     */
+    List<Message> messagesAfter(int account_id, int after_id, int limit) {
+        Timeline timeline = timeline(account_id);
+        return timeline == null ? null : timeline.messagesAfter(after_id, limit);
+    }
+
+    /**
+     * @param account_id
+     * @return Timeline the cached timeline, or one filled from the database.
+     *         Null if the fill failed
+     */
+    private Timeline timeline(int account_id) {
+        Timeline timeline = timelines.get(account_id);
+        if (timeline != null) {
+            return timeline;
+        }
+        // a drop between the stamp and the put means the loaded rows may be stale
+        long stamp = versions.version(account_id);
+        // one more than fits tells whether older messages were left out
+        List<Message> newest = loader.load(account_id, maxMessages + 1);
+        if (newest == null) {
+            return null;
+        }
+        timeline = new Timeline(newest, maxMessages);
+        if (versions.version(account_id) == stamp) {
+            timelines.put(account_id, timeline);
+            // a drop that bumped between the check and the put may have removed
+            // the old entry before this put landed. A later drop removes this one
+            if (versions.version(account_id) != stamp) {
+                timelines.invalidate(account_id);
+            }
+        }
+        return timeline;
+    }
+
+    /**
+     * @param account_id
+     * @return long the stamp to pass to put, taken before a message of
+     *         account_id is inserted
+     */
+    long stamp(int account_id) {
+        return versions.version(account_id);
+    }
+
+    /**
+     * add a posted message to its poster's timeline, unless the account's
+     * timeline was dropped since stamp was taken, in which case it is dropped
+     * again
+     *
+     * @param message the message as committed
+     * @param stamp   value returned by stamp(message.posted_by) before the insert
+     */
+    void put(Message message, long stamp) {
+        Timeline timeline = timelines.get(message.posted_by);
+        if (timeline != null && versions.version(message.posted_by) == stamp) {
+            timeline.put(message);
+        } else {
+            // a patch or delete may have committed since the insert, or a fill
+            // that is still loading may have missed it
+            invalidate(message.posted_by);
+        }
+    }
+
+    /**
+     * drop the timeline of an account whose message was patched or deleted. It
+     * is filled again on the account's next read
+     *
+     * @param account_id
+     */
+    void invalidate(int account_id) {
+        // bump first, so a fill that checks its stamp after this removal fails
+        versions.bump(account_id);
+        timelines.invalidate(account_id);
+    }
+
+    /**
+     * @return CacheStats hit, miss and eviction counters of the timelines
+     */
+    CacheStats getStats() {
+        return timelines.getStats();
+    }
+
+    private static final class Timeline {
+        private final int maxMessages;
+        /**
+         * held messages in message_id order
+         */
+        private final ArrayList<Message> messages;
+        /**
+         * every message of the account with a message_id above floor is held
+         */
+        private int floor;
+
+        /**
+         * @param newest      up to maxMessages + 1 messages, newest first
+         * @param maxMessages
+         */
+        Timeline(List<Message> newest, int maxMessages) {
+            this.maxMessages = maxMessages;
+            int held = Math.min(newest.size(), maxMessages);
+            this.messages = new ArrayList<>(held);
+            for (int i = held - 1; i >= 0; i--) {
+                messages.add(newest.get(i));
+            }
+            this.floor = newest.size() > maxMessages ? newest.get(maxMessages).message_id : 0;
+        }
+
+        synchronized List<Message> messagesAfter(int after_id, int limit) {
+            if (after_id < floor) {
+                return null;
+            }
+            int i = indexOf(after_id);
+            int from = i >= 0 ? i + 1 : -i - 1;
+            int to = (int) Math.min((long) from + limit, messages.size());
+            return new ArrayList<>(messages.subList(from, to));
+        }
+
+        synchronized void put(Message message) {
+            if (message.message_id <= floor) {
+                return;
+            }
+            int i = indexOf(message.message_id);
+            if (i >= 0) {
+                return;
+            }
+            messages.add(-i - 1, message);
+            if (messages.size() > maxMessages) {
+                floor = messages.remove(0).message_id;
+            }
+        }
+
+        /**
+         * @param message_id
+         * @return int the index of message_id, or (-(insertion point) - 1) like
+         *         Collections.binarySearch
+         */
+        private int indexOf(int message_id) {
+            int low = 0;
+            int high = messages.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int id = messages.get(mid).message_id;
+                if (id < message_id) {
+                    low = mid + 1;
+                } else if (id > message_id) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -low - 1;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import Util.Config;
+
+/**
+ * Issues and verifies signed session tokens, so that a client can prove who it
+ * is without calling POST /login again and without a database lookup.
+ *
+ * A token reads "v1.<account_id>.<expires>.<signature>", where expires is in
+ * epoch seconds and signature is the base64url HMAC-SHA256 of everything before
+ * it. Verification only recomputes the HMAC, so it needs no state besides the
+ * secret.
+ */
+public class TokenService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TokenService.class);
+
+    private static final String VERSION = "v1";
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final Mac prototype;
+    private final long ttlSeconds;
+
+    /**
+     * signs with the base64 secret in socialmedia.auth.tokenSecret and issues
+     * tokens valid for socialmedia.auth.tokenTtlSeconds. Without a configured
+     * secret a random one is generated, so tokens do not survive a restart
+     */
+    public TokenService() {
+        this(secretFromConfig(), Config.getLong("auth.tokenTtlSeconds", 3600));
+    }
+
+    /**
+     * @param secret     HMAC key
+     * @param ttlSeconds how long an issued token stays valid
+     */
+    public TokenService(byte[] secret, long ttlSeconds) {
+        try {
+            prototype = Mac.getInstance(ALGORITHM);
+            prototype.init(new SecretKeySpec(secret, ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    private static byte[] secretFromConfig() {
+        String secret = Config.getString("auth.tokenSecret", null);
+        if (secret != null) {
+            return Base64.getDecoder().decode(secret);
+        }
+        LOG.warn("socialmedia.auth.tokenSecret is not set; tokens will not survive a restart");
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        return random;
+    }
+
+    /**
+     * @param account_id
+     * @return String a token for account_id that expires after the configured
+     *         time to live
+     */
+    public String issue(int account_id) {
+        long expires = System.currentTimeMillis() / 1000 + ttlSeconds;
+        String payload = VERSION + "." + account_id + "." + expires;
+        return payload + "." + sign(payload);
+    }
+
+    /**
+     * @param token
+     * @return int the account_id the token was issued for. -1 if the token is
+     *         malformed, has been tampered with or has expired
+     */
+    public int verify(String token) {
+        if (token == null) {
+            return -1;
+        }
+        int signatureStart = token.lastIndexOf('.');
+        if (signatureStart < 0) {
+            return -1;
+        }
+        String payload = token.substring(0, signatureStart);
+        byte[] expected = sign(payload).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = token.substring(signatureStart + 1).getBytes(StandardCharsets.US_ASCII);
+        // constant time, so the signature cannot be guessed byte by byte
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return -1;
+        }
+        String[] fields = payload.split("\\.");
+        if (fields.length != 3 || !VERSION.equals(fields[0])) {
+            return -1;
+        }
+        try {
+            if (Long.parseLong(fields[2]) <= System.currentTimeMillis() / 1000) {
+                return -1;
+            }
+            return Integer.parseInt(fields[1]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return long seconds an issued token stays valid
+     */
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    private String sign(String payload) {
+        Mac mac;
+        try {
+            // a Mac is not thread safe; a clone of the keyed prototype skips the
+            // key setup
+            mac = (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(ALGORITHM + " cannot be cloned", e);
+        }
+        byte[] signature = mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+}
@@ -0,0 +1,121 @@
+package Util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe Bloom filter over strings. mightContain never returns false for
+ * a string that was added; it returns true for a string that was not added with
+ * roughly the configured false positive rate, as long as no more than the
+ * expected number of strings are added.
+ *
+ * The filter counts its own answers. Callers that go on to check a "maybe"
+ * answer against the real data report misses through recordFalsePositive, so
+ * the observed false positive rate can be compared with the configured one.
+ */
+public class BloomFilter {
+
+	private final AtomicLongArray bits;
+	private final long bitCount;
+	private final int hashFunctions;
+
+	private final LongAdder definitelyAbsent = new LongAdder();
+	private final LongAdder maybePresent = new LongAdder();
+	private final LongAdder falsePositives = new LongAdder();
+
+	/**
+	 * @param expectedInsertions number of strings the filter is sized for
+	 * @param falsePositiveRate  target probability of a false "maybe", between 0
+	 *                           and 1
+	 */
+	public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+		long n = Math.max(1, expectedInsertions);
+		double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+		long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+		int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) >>> 6);
+		this.bits = new AtomicLongArray(Math.max(1, words));
+		this.bitCount = (long) bits.length() << 6;
+		this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+	}
+
+	/**
+	 * @param value
+	 */
+	public void add(String value) {
+		long hash = hash(value);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 1; i <= hashFunctions; i++) {
+			setBit(index(h1 + i * h2));
+		}
+	}
+
+	/**
+	 * @param value
+	 * @return boolean false if value was definitely never added
+	 */
+	public boolean mightContain(String value) {
+		long hash = hash(value);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 1; i <= hashFunctions; i++) {
+			long index = index(h1 + i * h2);
+			if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+				definitelyAbsent.increment();
+				return false;
+			}
+		}
+		maybePresent.increment();
+		return true;
+	}
+
+	/**
+	 * report that a "maybe" answer turned out to be absent from the real data
+	 */
+	public void recordFalsePositive() {
+		falsePositives.increment();
+	}
+
+	/**
+	 * @return BloomFilterStats a snapshot of the filter's counters
+	 */
+	public BloomFilterStats getStats() {
+		return new BloomFilterStats(bitCount, hashFunctions, definitelyAbsent.sum(), maybePresent.sum(),
+				falsePositives.sum());
+	}
+
+	private long index(int combinedHash) {
+		// flip negative hashes so every index lands in [0, bitCount)
+		int positive = combinedHash < 0 ? ~combinedHash : combinedHash;
+		return positive % bitCount;
+	}
+
+	private void setBit(long index) {
+		int word = (int) (index >>> 6);
+		long mask = 1L << index;
+		while (true) {
+			long current = bits.get(word);
+			if ((current & mask) != 0 || bits.compareAndSet(word, current, current | mask)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * 64-bit FNV-1a over the UTF-16 chars of value, finished with the murmur3
+	 * mix so both halves are usable as independent hashes
+	 */
+	private static long hash(String value) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			h ^= value.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -0,0 +1,68 @@
+package Util;
+
+/**
+ * An immutable snapshot of BloomFilter counters.
+ */
+public class BloomFilterStats {
+
+	private final long bitCount;
+	private final int hashFunctions;
+	private final long definitelyAbsent;
+	private final long maybePresent;
+	private final long falsePositives;
+
+	BloomFilterStats(long bitCount, int hashFunctions, long definitelyAbsent, long maybePresent,
+			long falsePositives) {
+		this.bitCount = bitCount;
+		this.hashFunctions = hashFunctions;
+		this.definitelyAbsent = definitelyAbsent;
+		this.maybePresent = maybePresent;
+		this.falsePositives = falsePositives;
+	}
+
+	/**
+	 * @return long size of the filter in bits
+	 */
+	public long getBitCount() {
+		return bitCount;
+	}
+
+	/**
+	 * @return int number of hash functions per element
+	 */
+	public int getHashFunctions() {
+		return hashFunctions;
+	}
+
+	/**
+	 * @return long lookups the filter answered "definitely absent"
+	 */
+	public long getDefinitelyAbsent() {
+		return definitelyAbsent;
+	}
+
+	/**
+	 * @return long lookups the filter answered "maybe present"
+	 */
+	public long getMaybePresent() {
+		return maybePresent;
+	}
+
+	/**
+	 * @return long "maybe present" answers that turned out to be absent
+	 */
+	public long getFalsePositives() {
+		return falsePositives;
+	}
+
+	@Override
+	public String toString() {
+		return "BloomFilterStats{" +
+				"bitCount=" + bitCount +
+				", hashFunctions=" + hashFunctions +
+				", definitelyAbsent=" + definitelyAbsent +
+				", maybePresent=" + maybePresent +
+				", falsePositives=" + falsePositives +
+				'}';
+	}
+}
@@ -0,0 +1,93 @@
+package Util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The Bulkhead class caps how many calls of one kind may be in flight and how
+ * long a caller waits for any of them.
+ *
+ * A call that finds every permit taken fails at once with a
+ * RejectedExecutionException instead of queueing, so one slow endpoint cannot
+ * take over the whole database executor. A call that runs longer than the
+ * timeout fails with a TimeoutException. Its permit is still held until the
+ * underlying work really finishes, since that work still occupies a thread and
+ * a connection.
+ */
+public class Bulkhead {
+
+	private final String name;
+	private final int maxConcurrent;
+	private final long timeoutMillis;
+	private final Semaphore permits;
+
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder timeouts = new LongAdder();
+
+	/**
+	 * @param name          used in rejection messages and stats
+	 * @param maxConcurrent most calls in flight at once
+	 * @param timeoutMillis how long a caller waits for a call; 0 waits forever
+	 */
+	public Bulkhead(String name, int maxConcurrent, long timeoutMillis) {
+		this.name = name;
+		this.maxConcurrent = Math.max(1, maxConcurrent);
+		this.timeoutMillis = Math.max(0, timeoutMillis);
+		this.permits = new Semaphore(this.maxConcurrent);
+	}
+
+	/**
+	 * start call if a permit is free
+	 *
+	 * @param call starts the work and returns its future
+	 * @return CompletableFuture<T> completed like the future returned by call,
+	 *         or exceptionally with a RejectedExecutionException if the bulkhead
+	 *         is full or a TimeoutException if the work takes too long
+	 */
+	public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> call) {
+		if (!permits.tryAcquire()) {
+			rejected.increment();
+			return CompletableFuture.failedFuture(new RejectedExecutionException(name + " bulkhead is full"));
+		}
+		calls.increment();
+		CompletableFuture<T> work;
+		try {
+			work = call.get();
+		} catch (RuntimeException e) {
+			permits.release();
+			return CompletableFuture.failedFuture(e);
+		}
+		work.whenComplete((result, e) -> permits.release());
+		// time out a copy so the permit follows the work, not the caller
+		CompletableFuture<T> caller = work.copy();
+		if (timeoutMillis > 0) {
+			caller.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((result, e) -> {
+				if (e instanceof TimeoutException) {
+					timeouts.increment();
+				}
+			});
+		}
+		return caller;
+	}
+
+	/**
+	 * @return String the name given to the constructor
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return BulkheadStats a snapshot of the permit and rejection counters
+	 */
+	public BulkheadStats getStats() {
+		return new BulkheadStats(maxConcurrent - permits.availablePermits(), maxConcurrent, calls.sum(),
+				rejected.sum(), timeouts.sum());
+	}
+}
@@ -0,0 +1,67 @@
+package Util;
+
+/**
+ * An immutable snapshot of Bulkhead counters.
+ */
+public class BulkheadStats {
+
+	private final int active;
+	private final int maxConcurrent;
+	private final long calls;
+	private final long rejected;
+	private final long timeouts;
+
+	BulkheadStats(int active, int maxConcurrent, long calls, long rejected, long timeouts) {
+		this.active = active;
+		this.maxConcurrent = maxConcurrent;
+		this.calls = calls;
+		this.rejected = rejected;
+		this.timeouts = timeouts;
+	}
+
+	/**
+	 * @return int calls currently in flight
+	 */
+	public int getActive() {
+		return active;
+	}
+
+	/**
+	 * @return int most calls allowed in flight at once
+	 */
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	/**
+	 * @return long calls that got a permit
+	 */
+	public long getCalls() {
+		return calls;
+	}
+
+	/**
+	 * @return long calls turned away because every permit was taken
+	 */
+	public long getRejected() {
+		return rejected;
+	}
+
+	/**
+	 * @return long calls whose caller gave up waiting
+	 */
+	public long getTimeouts() {
+		return timeouts;
+	}
+
+	@Override
+	public String toString() {
+		return "BulkheadStats{" +
+				"active=" + active +
+				", maxConcurrent=" + maxConcurrent +
+				", calls=" + calls +
+				", rejected=" + rejected +
+				", timeouts=" + timeouts +
+				'}';
+	}
+}
@@ -0,0 +1,67 @@
+package Util;
+
+/**
+ * An immutable snapshot of TtlCache counters.
+ */
+public class CacheStats {
+
+	private final long size;
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final long expirations;
+
+	CacheStats(long size, long hits, long misses, long evictions, long expirations) {
+		this.size = size;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.expirations = expirations;
+	}
+
+	/**
+	 * @return long entries currently cached
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return long lookups answered from the cache
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return long lookups that found nothing, including expired entries
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return long entries dropped to stay within the size bound
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return long entries dropped because they outlived the time to live
+	 */
+	public long getExpirations() {
+		return expirations;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats{" +
+				"size=" + size +
+				", hits=" + hits +
+				", misses=" + misses +
+				", evictions=" + evictions +
+				", expirations=" + expirations +
+				'}';
+	}
+}
@@ -0,0 +1,58 @@
+package Util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe set of non-negative ints stored as a growable bitset. It is
+ * meant for dense ids such as auto-increment keys: a million ids take about
+ * 128KB and membership checks are a single array read.
+ *
+ * Lookups never block. Adds are serialised by a lock, which also covers
+ * copying the words into a larger array when the set grows; ids are added far
+ * less often than they are looked up.
+ */
+public class ConcurrentIntSet {
+
+	private volatile AtomicLongArray words;
+
+	/**
+	 * @param initialCapacity largest value expected initially; the set grows as
+	 *                        needed
+	 */
+	public ConcurrentIntSet(int initialCapacity) {
+		words = new AtomicLongArray(Math.max(1, (initialCapacity >>> 6) + 1));
+	}
+
+	/**
+	 * @param value
+	 * @return boolean true if value is in the set
+	 */
+	public boolean contains(int value) {
+		if (value < 0) {
+			return false;
+		}
+		AtomicLongArray current = words;
+		int index = value >>> 6;
+		return index < current.length() && (current.get(index) & (1L << value)) != 0;
+	}
+
+	/**
+	 * @param value a non-negative int
+	 */
+	public synchronized void add(int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("value must not be negative: " + value);
+		}
+		int index = value >>> 6;
+		AtomicLongArray current = words;
+		if (index >= current.length()) {
+			AtomicLongArray grown = new AtomicLongArray(Math.max(index + 1, current.length() * 2));
+			for (int i = 0; i < current.length(); i++) {
+				grown.set(i, current.get(i));
+			}
+			words = grown;
+			current = grown;
+		}
+		current.set(index, current.get(index) | (1L << value));
+	}
+}
@@ -0,0 +1,76 @@
+package Util;
+
+/**
+ * The Config class reads tuning knobs for the application from JVM system
+ * properties. Every key is prefixed with "socialmedia." so that, for example,
+ * the maximum pool size can be set with -Dsocialmedia.pool.maxSize=20.
+ * Missing or malformed values fall back to the supplied default.
+ */
+public class Config {
+
+	/**
+	 * prefix shared by every system property read by this class
+	 */
+	private static final String PREFIX = "socialmedia.";
+
+	private Config() {
+	}
+
+	/**
+	 * @param key          property name without the "socialmedia." prefix
+	 * @param defaultValue value used when the property is not set
+	 * @return String the configured value or defaultValue
+	 */
+	public static String getString(String key, String defaultValue) {
+		String value = System.getProperty(PREFIX + key);
+		return value == null || value.isBlank() ? defaultValue : value.trim();
+	}
+
+	/**
+	 * @param key          property name without the "socialmedia." prefix
+	 * @param defaultValue value used when the property is not set or malformed
+	 * @return int the configured value or defaultValue
+	 */
+	public static int getInt(String key, int defaultValue) {
+		try {
+			return Integer.parseInt(getString(key, Integer.toString(defaultValue)));
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * @param key          property name without the "socialmedia." prefix
+	 * @param defaultValue value used when the property is not set or malformed
+	 * @return long the configured value or defaultValue
+	 */
+	public static long getLong(String key, long defaultValue) {
+		try {
+			return Long.parseLong(getString(key, Long.toString(defaultValue)));
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * @param key          property name without the "socialmedia." prefix
+	 * @param defaultValue value used when the property is not set or malformed
+	 * @return double the configured value or defaultValue
+	 */
+	public static double getDouble(String key, double defaultValue) {
+		try {
+			return Double.parseDouble(getString(key, Double.toString(defaultValue)));
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * @param key          property name without the "socialmedia." prefix
+	 * @param defaultValue value used when the property is not set
+	 * @return boolean the configured value or defaultValue
+	 */
+	public static boolean getBoolean(String key, boolean defaultValue) {
+		return Boolean.parseBoolean(getString(key, Boolean.toString(defaultValue)));
+	}
+}
@@ -0,0 +1,392 @@
+package Util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The ConnectionPool class keeps a bounded set of physical connections open so
+ * that DAO calls do not pay the cost of opening a new H2 session every time.
+ *
+ * Borrowers get a Connection handle; closing the handle returns the physical
+ * connection to the pool. When every connection is in use, borrowers wait up
+ * to the acquire timeout for one to be returned. Idle connections above the
+ * minimum size are closed by a background housekeeper, and idle connections
+ * are validated before they are handed out again.
+ *
+ * Connections held for longer than the leak detection threshold are reported
+ * once, with the stack trace of the code that borrowed them, and counted in
+ * PoolStats. Statements left open by a borrower are closed when its
+ * connection is returned.
+ *
+ * Each connection keeps an LRU cache of its prepared statements so repeated
+ * DAO queries skip parsing and planning.
+ *
+ * Settings are read from system properties (see Config):
+ * pool.minSize, pool.maxSize, pool.acquireTimeoutMillis,
+ * pool.idleTimeoutMillis, pool.validateOnBorrow,
+ * pool.leakDetectionThresholdMillis (0 disables leak detection) and
+ * pool.statementCacheSize (0 disables statement caching).
+ */
+public class ConnectionPool {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ConnectionPool.class);
+
+	/**
+	 * largest acquire time tracked by the histogram, in microseconds
+	 */
+	private static final long MAX_RECORDED_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+	private final DataSource source;
+	private final int minSize;
+	private final int maxSize;
+	private final long acquireTimeoutNanos;
+	private final long idleTimeoutNanos;
+	private final boolean validateOnBorrow;
+	private final long leakThresholdNanos;
+	private final int statementCacheSize;
+
+	/**
+	 * guards idle, total, waiters and closed
+	 */
+	private final ReentrantLock lock = new ReentrantLock(true);
+	private final Condition released = lock.newCondition();
+	private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+	private int total;
+	private int waiters;
+	private boolean closed;
+
+	/**
+	 * leases that have not been closed yet, scanned for leaks
+	 */
+	private final Set<PooledConnection.Lease> leases = ConcurrentHashMap.newKeySet();
+
+	private final LongAdder acquired = new LongAdder();
+	private final LongAdder timeouts = new LongAdder();
+	private final LongAdder created = new LongAdder();
+	private final LongAdder destroyed = new LongAdder();
+	private final LongAdder leaksDetected = new LongAdder();
+	private final LongAdder reclaimedStatements = new LongAdder();
+	private final LongAdder statementCacheHits = new LongAdder();
+	private final LongAdder statementCacheMisses = new LongAdder();
+	private final LongAdder statementCacheEvictions = new LongAdder();
+	private final Histogram acquireMicros = new ConcurrentHistogram(MAX_RECORDED_MICROS, 3);
+
+	private final ScheduledExecutorService housekeeper;
+
+	/**
+	 * @param source the DataSource physical connections are opened from
+	 */
+	public ConnectionPool(DataSource source) {
+		this.source = source;
+		this.maxSize = Math.max(1, Config.getInt("pool.maxSize", 10));
+		this.minSize = Math.min(maxSize, Math.max(0, Config.getInt("pool.minSize", 2)));
+		this.acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Config.getLong("pool.acquireTimeoutMillis", 5000));
+		this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Config.getLong("pool.idleTimeoutMillis", 600000));
+		this.validateOnBorrow = Config.getBoolean("pool.validateOnBorrow", true);
+		this.leakThresholdNanos = TimeUnit.MILLISECONDS
+				.toNanos(Math.max(0, Config.getLong("pool.leakDetectionThresholdMillis", 30000)));
+		this.statementCacheSize = Math.max(0, Config.getInt("pool.statementCacheSize", 32));
+
+		long housekeepingMillis = Math.max(1000, Math.min(30000, TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) / 2));
+		housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		housekeeper.scheduleWithFixedDelay(this::housekeep, housekeepingMillis, housekeepingMillis,
+				TimeUnit.MILLISECONDS);
+		if (leakThresholdNanos > 0) {
+			long leakCheckMillis = Math.max(100, TimeUnit.NANOSECONDS.toMillis(leakThresholdNanos) / 2);
+			housekeeper.scheduleWithFixedDelay(this::detectLeaks, leakCheckMillis, leakCheckMillis,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * borrow a connection, waiting up to the acquire timeout if the pool is
+	 * exhausted. The returned connection must be closed to give it back.
+	 *
+	 * @return Connection a pooled connection
+	 * @throws SQLException if no connection became available in time or a new
+	 *                      one could not be opened
+	 */
+	public Connection getConnection() throws SQLException {
+		long start = System.nanoTime();
+		PooledConnection pooled = acquire(start + acquireTimeoutNanos);
+		acquireMicros.recordValue(Math.min(MAX_RECORDED_MICROS, (System.nanoTime() - start) / 1000));
+		acquired.increment();
+		PooledConnection.Lease lease = pooled
+				.lease(leakThresholdNanos > 0 ? new Throwable("Connection acquired here") : null);
+		leases.add(lease);
+		return lease.connection();
+	}
+
+	/**
+	 * take an idle connection, open a new one if below the maximum size, or wait
+	 * for one to be released
+	 */
+	private PooledConnection acquire(long deadline) throws SQLException {
+		while (true) {
+			PooledConnection candidate = null;
+			lock.lock();
+			try {
+				while (candidate == null) {
+					if (closed) {
+						throw new SQLException("Connection pool is closed");
+					}
+					candidate = idle.pollFirst();
+					if (candidate == null && total < maxSize) {
+						total++;
+						break;
+					}
+					if (candidate == null) {
+						long remaining = deadline - System.nanoTime();
+						if (remaining <= 0) {
+							timeouts.increment();
+							throw new SQLTimeoutException("Timed out waiting for a pooled connection ("
+									+ total + " in use, " + waiters + " waiting)");
+						}
+						waiters++;
+						try {
+							released.awaitNanos(remaining);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new SQLException("Interrupted while waiting for a pooled connection", e);
+						} finally {
+							waiters--;
+						}
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+			if (candidate == null) {
+				return open();
+			}
+			if (!validateOnBorrow || candidate.isValid(1)) {
+				return candidate;
+			}
+			discard(candidate);
+		}
+	}
+
+	/**
+	 * open a new physical connection. The caller must already have counted it
+	 * in total.
+	 */
+	private PooledConnection open() throws SQLException {
+		try {
+			PooledConnection pooled = new PooledConnection(this, source.getConnection(), statementCacheSize);
+			created.increment();
+			return pooled;
+		} catch (SQLException | RuntimeException e) {
+			lock.lock();
+			try {
+				total--;
+				released.signal();
+			} finally {
+				lock.unlock();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * give a connection back to the idle set. Called when a lease is closed.
+	 *
+	 * @param pooled
+	 * @param lease     the lease being closed
+	 * @param reclaimed number of statements the borrower left open
+	 */
+	void release(PooledConnection pooled, PooledConnection.Lease lease, int reclaimed) {
+		leases.remove(lease);
+		if (reclaimed > 0) {
+			reclaimedStatements.add(reclaimed);
+		}
+		if (lease.wasReported()) {
+			LOG.info("Previously reported connection leak from thread {} was returned after {} ms",
+					lease.threadName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lease.leasedAtNanos()));
+		}
+		release(pooled);
+	}
+
+	/**
+	 * give a connection back to the idle set
+	 */
+	private void release(PooledConnection pooled) {
+		if (!pooled.reset()) {
+			discard(pooled);
+			return;
+		}
+		pooled.lastReleasedNanos = System.nanoTime();
+		lock.lock();
+		try {
+			if (!closed) {
+				idle.addFirst(pooled);
+				released.signal();
+				return;
+			}
+		} finally {
+			lock.unlock();
+		}
+		discard(pooled);
+	}
+
+	/**
+	 * close a connection and forget about it
+	 */
+	private void discard(PooledConnection pooled) {
+		pooled.closePhysical();
+		destroyed.increment();
+		lock.lock();
+		try {
+			total--;
+			released.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	void recordStatementCacheHit() {
+		statementCacheHits.increment();
+	}
+
+	void recordStatementCacheMiss() {
+		statementCacheMisses.increment();
+	}
+
+	void recordStatementCacheEviction() {
+		statementCacheEvictions.increment();
+	}
+
+	/**
+	 * periodic task: evict connections idle for longer than the idle timeout,
+	 * then top the pool back up to its minimum size
+	 */
+	private void housekeep() {
+		try {
+			evictIdle();
+			fillToMinimum();
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * periodic task: report each lease held for longer than the leak threshold
+	 */
+	private void detectLeaks() {
+		long now = System.nanoTime();
+		for (PooledConnection.Lease lease : leases) {
+			long heldNanos = now - lease.leasedAtNanos();
+			if (heldNanos >= leakThresholdNanos && lease.markReported()) {
+				leaksDetected.increment();
+				LOG.warn("Possible connection leak: connection borrowed by thread {} has been held for {} ms",
+						lease.threadName(), TimeUnit.NANOSECONDS.toMillis(heldNanos), lease.origin());
+			}
+		}
+	}
+
+	private void evictIdle() {
+		List<PooledConnection> expired = new ArrayList<>();
+		long now = System.nanoTime();
+		lock.lock();
+		try {
+			// the least recently used connections sit at the tail of the deque
+			Iterator<PooledConnection> it = idle.descendingIterator();
+			while (it.hasNext() && total - expired.size() > minSize) {
+				PooledConnection pooled = it.next();
+				if (now - pooled.lastReleasedNanos >= idleTimeoutNanos) {
+					it.remove();
+					expired.add(pooled);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+		for (PooledConnection pooled : expired) {
+			discard(pooled);
+		}
+	}
+
+	private void fillToMinimum() {
+		while (true) {
+			lock.lock();
+			try {
+				if (closed || total >= minSize) {
+					return;
+				}
+				total++;
+			} finally {
+				lock.unlock();
+			}
+			try {
+				release(open());
+			} catch (SQLException e) {
+				e.printStackTrace();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return PoolStats a point-in-time snapshot of the pool counters
+	 */
+	public PoolStats getStats() {
+		int totalNow;
+		int idleNow;
+		int waitersNow;
+		lock.lock();
+		try {
+			totalNow = total;
+			idleNow = idle.size();
+			waitersNow = waiters;
+		} finally {
+			lock.unlock();
+		}
+		return new PoolStats(totalNow - idleNow, idleNow, waitersNow, maxSize, acquired.sum(), timeouts.sum(),
+				created.sum(), destroyed.sum(), leaksDetected.sum(), reclaimedStatements.sum(), statementCacheHits.sum(),
+				statementCacheMisses.sum(), statementCacheEvictions.sum(), acquireMicros.copy());
+	}
+
+	/**
+	 * close every idle connection and refuse further borrows. Leased connections
+	 * are closed as they are returned.
+	 */
+	public void close() {
+		List<PooledConnection> drained;
+		lock.lock();
+		try {
+			closed = true;
+			drained = new ArrayList<>(idle);
+			idle.clear();
+			released.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		housekeeper.shutdownNow();
+		for (PooledConnection pooled : drained) {
+			discard(pooled);
+		}
+	}
+}
@@ -4,6 +4,7 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 import org.h2.jdbcx.JdbcDataSource;
 import org.h2.tools.RunScript;
@@ -13,7 +14,8 @@ import org.h2.tools.RunScript;
  * our database. This class utilizes the singleton design pattern. We will be
  * utilizing an in-memory called h2database for the sql demos.
  *
- * DO NOT CHANGE ANYTHING IN THIS CLASS
+ * Connections are handed out by a bounded ConnectionPool; closing a connection
+ * returns it to the pool rather than closing the underlying H2 session.
  */
 public class ConnectionUtil {
 
@@ -21,7 +23,7 @@ public class ConnectionUtil {
 	 * url will represent our connection string. Since this is an in-memory db, we
 	 * will represent a file location to store the data
 	 */
-	private static String url = "jdbc:h2:./h2/db;";
+	private static String url = Config.getString("db.url", "jdbc:h2:./h2/db;");
 	/**
 	 * Default username for connecting to h2
 	 */
@@ -32,21 +34,29 @@ public class ConnectionUtil {
 	private static String password = "sa";
 
 	/**
-	 * DataSource for pooling. Pooling enables the creation of multiple connections when connections are closed.
+	 * DataSource the pool opens its physical connections from.
 	 */
-	private static JdbcDataSource pool = new JdbcDataSource();
+	private static JdbcDataSource dataSource = new JdbcDataSource();
+
+	/**
+	 * Pool of open connections. Pooling lets connections be reused when they are
+	 * closed instead of opening a new H2 session for every query.
+	 */
+	private static ConnectionPool pool;
 
 	/**
 	 * static initialization block to establish credentials for DataSoure Pool
 	 */
 	static {
-		pool.setURL(url);
-		pool.setUser(username);
-		pool.setPassword(password);
+		dataSource.setURL(url);
+		dataSource.setUser(username);
+		dataSource.setPassword(password);
+		pool = new ConnectionPool(dataSource);
 	}
 
 	/**
-	 * @return an active connection to the database
+	 * @return an active connection to the database. Closing it returns it to the
+	 *         pool
 	 */
 	public static Connection getConnection() {
 		try {
@@ -58,17 +68,53 @@ public class ConnectionUtil {
 		return null;
 	}
 
+	/**
+	 * @return PoolStats a snapshot of the connection pool counters
+	 */
+	public static PoolStats getPoolStats() {
+		return pool.getStats();
+	}
+
+	/**
+	 * bring the schema up to date by applying any pending migrations. Safe to
+	 * call on every startup.
+	 *
+	 * @throws IllegalStateException if the database cannot be reached or a
+	 *                               migration fails, so the server never starts
+	 *                               on a partly migrated schema
+	 */
+	public static void migrate() {
+		try (Connection connection = pool.getConnection()) {
+			SchemaMigrator.migrate(connection);
+		} catch (SQLException e) {
+			throw new IllegalStateException("Cannot apply schema migrations", e);
+		}
+	}
+
 	/**
 	 * For the purpose of testing, we will need to drop and recreate our database
-	 * tables to keep it consistent across all tests. The method will read the sql
-	 * file in resources. This will be performed before every test.
+	 * tables to keep it consistent across all tests. Everything is dropped, the
+	 * schema migrations are applied from scratch and then the test rows in the
+	 * sql file in resources are inserted. This will be performed before every
+	 * test.
 	 */
 	public static void resetTestDatabase() {
+		Connection connection = getConnection();
 		try {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("DROP ALL OBJECTS");
+			}
+			SchemaMigrator.migrate(connection);
 			FileReader sqlReader = new FileReader("src/main/resources/SocialMedia.sql");
-			RunScript.execute(getConnection(), sqlReader);
+			RunScript.execute(connection, sqlReader);
 		} catch (SQLException | FileNotFoundException e) {
 			e.printStackTrace();
+		} finally {
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
 		}
 	}
 }
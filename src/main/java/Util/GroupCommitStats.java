@@ -0,0 +1,83 @@
+package Util;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * An immutable snapshot of GroupCommitter counters.
+ */
+public class GroupCommitStats {
+
+	private final int queued;
+	private final long submitted;
+	private final long flushes;
+	private final long failedFlushes;
+	private final Histogram flushSizes;
+	private final Histogram flushMicros;
+
+	GroupCommitStats(int queued, long submitted, long flushes, long failedFlushes, Histogram flushSizes,
+			Histogram flushMicros) {
+		this.queued = queued;
+		this.submitted = submitted;
+		this.flushes = flushes;
+		this.failedFlushes = failedFlushes;
+		this.flushSizes = flushSizes;
+		this.flushMicros = flushMicros;
+	}
+
+	/**
+	 * @return int items waiting for the next flush
+	 */
+	public int getQueued() {
+		return queued;
+	}
+
+	/**
+	 * @return long items accepted by submit
+	 */
+	public long getSubmitted() {
+		return submitted;
+	}
+
+	/**
+	 * @return long groups handed to the flush function
+	 */
+	public long getFlushes() {
+		return flushes;
+	}
+
+	/**
+	 * @return long flushes that threw, failing every item in their group
+	 */
+	public long getFailedFlushes() {
+		return failedFlushes;
+	}
+
+	/**
+	 * @return Histogram items written per flush
+	 */
+	public Histogram getFlushSizes() {
+		return flushSizes;
+	}
+
+	/**
+	 * @return Histogram time spent in the flush function, in microseconds
+	 */
+	public Histogram getFlushMicros() {
+		return flushMicros;
+	}
+
+	@Override
+	public String toString() {
+		return "GroupCommitStats{" +
+				"queued=" + queued +
+				", submitted=" + submitted +
+				", flushes=" + flushes +
+				", failedFlushes=" + failedFlushes +
+				", meanFlushSize=" + flushSizes.getMean() +
+				", maxFlushSize=" + flushSizes.getMaxValue() +
+				", flushP50Micros=" + flushMicros.getValueAtPercentile(50) +
+				", flushP99Micros=" + flushMicros.getValueAtPercentile(99) +
+				", flushMaxMicros=" + flushMicros.getMaxValue() +
+				'}';
+	}
+}
@@ -0,0 +1,207 @@
+package Util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The GroupCommitter class turns many concurrent single-row writes into a few
+ * batched transactions.
+ *
+ * Callers submit items and get a future for their own result. One writer
+ * thread collects items until maxBatchSize are waiting or maxDelayMillis have
+ * passed since the first of them arrived, then hands the whole group to the
+ * flush function, which is expected to write it in one transaction and return
+ * one result per item, in order. The commit cost is then paid once per group
+ * instead of once per row, at the price of up to maxDelayMillis of extra
+ * latency.
+ *
+ * close() stops accepting items, flushes everything already queued and waits
+ * for the writer thread to finish.
+ */
+public class GroupCommitter<T, R> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(GroupCommitter.class);
+
+	/**
+	 * flushes slower than this are recorded as this value
+	 */
+	private static final long MAX_RECORDED_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+	private final Function<List<T>, List<R>> flush;
+	private final int maxBatchSize;
+	private final long maxDelayNanos;
+	private final BlockingQueue<Pending<T, R>> queue;
+	private final Thread writer;
+
+	/**
+	 * submit holds the read lock while it checks closed and enqueues, so once
+	 * close has taken the write lock no item can slip in behind the final drain
+	 */
+	private final ReadWriteLock closing = new ReentrantReadWriteLock();
+	private volatile boolean closed;
+
+	private final LongAdder submitted = new LongAdder();
+	private final LongAdder flushes = new LongAdder();
+	private final LongAdder failedFlushes = new LongAdder();
+	private final Histogram flushSizes = new ConcurrentHistogram(3);
+	private final Histogram flushMicros = new ConcurrentHistogram(MAX_RECORDED_MICROS, 3);
+
+	/**
+	 * @param name           name of the writer thread
+	 * @param flush          writes a group of items and returns one result per
+	 *                       item, in order
+	 * @param maxBatchSize   most items written by one flush
+	 * @param maxDelayMillis longest an item waits for its group to fill up
+	 * @param queueCapacity  most items waiting to be flushed; submit blocks when
+	 *                       the queue is full
+	 */
+	public GroupCommitter(String name, Function<List<T>, List<R>> flush, int maxBatchSize, long maxDelayMillis,
+			int queueCapacity) {
+		this.flush = flush;
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+		this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMillis));
+		this.queue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+		this.writer = new Thread(this::run, name);
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * queue item for the next flush
+	 *
+	 * @param item
+	 * @return CompletableFuture<R> completed with the item's result once its group
+	 *         is written, or exceptionally if the flush fails or the committer is
+	 *         closed
+	 */
+	public CompletableFuture<R> submit(T item) {
+		Pending<T, R> pending = new Pending<>(item);
+		closing.readLock().lock();
+		try {
+			if (closed) {
+				pending.result.completeExceptionally(new IllegalStateException("GroupCommitter is closed"));
+				return pending.result;
+			}
+			queue.put(pending);
+			submitted.increment();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			pending.result.completeExceptionally(e);
+		} finally {
+			closing.readLock().unlock();
+		}
+		return pending.result;
+	}
+
+	private void run() {
+		List<Pending<T, R>> group = new ArrayList<>(maxBatchSize);
+		while (!closed || !queue.isEmpty()) {
+			try {
+				// wake up now and then to notice close
+				Pending<T, R> first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				group.add(first);
+				long deadline = System.nanoTime() + maxDelayNanos;
+				while (group.size() < maxBatchSize) {
+					queue.drainTo(group, maxBatchSize - group.size());
+					long remaining = deadline - System.nanoTime();
+					if (group.size() >= maxBatchSize || remaining <= 0) {
+						break;
+					}
+					Pending<T, R> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					group.add(next);
+				}
+			} catch (InterruptedException e) {
+				// keep draining; close waits for the queue to empty
+			}
+			if (!group.isEmpty()) {
+				write(group);
+				group.clear();
+			}
+		}
+	}
+
+	private void write(List<Pending<T, R>> group) {
+		List<T> items = new ArrayList<>(group.size());
+		for (Pending<T, R> pending : group) {
+			items.add(pending.item);
+		}
+		long start = System.nanoTime();
+		List<R> results;
+		try {
+			results = flush.apply(items);
+			if (results == null || results.size() != items.size()) {
+				throw new IllegalStateException("flush returned " + (results == null ? "null" : results.size())
+						+ " results for " + items.size() + " items");
+			}
+		} catch (RuntimeException e) {
+			failedFlushes.increment();
+			LOG.warn("Group commit of {} items failed", items.size(), e);
+			for (Pending<T, R> pending : group) {
+				pending.result.completeExceptionally(e);
+			}
+			return;
+		} finally {
+			flushes.increment();
+			flushSizes.recordValue(items.size());
+			flushMicros.recordValue(
+					Math.min(MAX_RECORDED_MICROS, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)));
+		}
+		for (int i = 0; i < group.size(); i++) {
+			group.get(i).result.complete(results.get(i));
+		}
+	}
+
+	/**
+	 * @return GroupCommitStats a snapshot of the flush counters and histograms
+	 */
+	public GroupCommitStats getStats() {
+		return new GroupCommitStats(queue.size(), submitted.sum(), flushes.sum(), failedFlushes.sum(),
+				flushSizes.copy(), flushMicros.copy());
+	}
+
+	/**
+	 * stop accepting items, flush everything already queued and wait for the
+	 * writer thread to finish
+	 */
+	public void close() {
+		closing.writeLock().lock();
+		try {
+			closed = true;
+		} finally {
+			closing.writeLock().unlock();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static final class Pending<T, R> {
+		private final T item;
+		private final CompletableFuture<R> result = new CompletableFuture<>();
+
+		private Pending(T item) {
+			this.item = item;
+		}
+	}
+}
@@ -0,0 +1,312 @@
+package Util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The InvertedIndex class maps every word of a set of documents to the sorted
+ * list of the int ids of the documents that contain it, so that the documents
+ * containing all words of a query are found by intersecting a few lists
+ * instead of scanning every document.
+ *
+ * Words are maximal runs of letters and digits, compared in lower case. Each
+ * posting list is a primitive int array in ascending id order; new documents
+ * normally have the highest id yet, so adding one appends to its lists.
+ * Searches share a read lock and changes take the write lock, so a search
+ * never sees a document half added.
+ */
+public class InvertedIndex {
+
+	private final Map<String, Postings> index = new HashMap<>();
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private long postingCount;
+
+	/**
+	 * @param text
+	 * @return List<String> the distinct lower case words of text, in the order
+	 *         they first appear
+	 */
+	public static List<String> terms(String text) {
+		Set<String> terms = new LinkedHashSet<>();
+		StringBuilder term = new StringBuilder();
+		for (int i = 0; i < text.length();) {
+			int codePoint = text.codePointAt(i);
+			i += Character.charCount(codePoint);
+			if (Character.isLetterOrDigit(codePoint)) {
+				term.appendCodePoint(Character.toLowerCase(codePoint));
+			} else if (term.length() > 0) {
+				terms.add(term.toString());
+				term.setLength(0);
+			}
+		}
+		if (term.length() > 0) {
+			terms.add(term.toString());
+		}
+		return new ArrayList<>(terms);
+	}
+
+	/**
+	 * index the words of text under id
+	 *
+	 * @param id
+	 * @param text
+	 */
+	public void add(int id, String text) {
+		List<String> terms = terms(text);
+		lock.writeLock().lock();
+		try {
+			for (String term : terms) {
+				addPosting(term, id);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * remove id from the lists of the words of text
+	 *
+	 * @param id
+	 * @param text the text id was indexed with
+	 */
+	public void remove(int id, String text) {
+		List<String> terms = terms(text);
+		lock.writeLock().lock();
+		try {
+			for (String term : terms) {
+				removePosting(term, id);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * reindex id from oldText to newText, touching only the words that differ
+	 *
+	 * @param id
+	 * @param oldText the text id was indexed with
+	 * @param newText
+	 */
+	public void update(int id, String oldText, String newText) {
+		List<String> oldTerms = terms(oldText);
+		List<String> newTerms = terms(newText);
+		lock.writeLock().lock();
+		try {
+			for (String term : oldTerms) {
+				if (!newTerms.contains(term)) {
+					removePosting(term, id);
+				}
+			}
+			for (String term : newTerms) {
+				if (!oldTerms.contains(term)) {
+					addPosting(term, id);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * move every posting of later into this index. Used to combine indexes built
+	 * in parallel over consecutive id ranges
+	 *
+	 * @param later an index whose ids are all greater than those of this index
+	 */
+	public void appendAll(InvertedIndex later) {
+		lock.writeLock().lock();
+		try {
+			for (Map.Entry<String, Postings> entry : later.index.entrySet()) {
+				Postings postings = index.get(entry.getKey());
+				if (postings == null) {
+					index.put(entry.getKey(), entry.getValue());
+				} else {
+					postings.appendAll(entry.getValue());
+				}
+				postingCount += entry.getValue().size;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @param terms   words that must all be present, e.g. from terms(query)
+	 * @param afterId exclusive lower bound on the ids returned
+	 * @param limit   most ids to return
+	 * @return int[] the ids above afterId indexed under every one of terms, in
+	 *         ascending order. Empty if terms is empty
+	 */
+	public int[] search(List<String> terms, int afterId, int limit) {
+		if (terms.isEmpty() || limit <= 0) {
+			return new int[0];
+		}
+		lock.readLock().lock();
+		try {
+			Postings[] lists = new Postings[terms.size()];
+			for (int i = 0; i < lists.length; i++) {
+				lists[i] = index.get(terms.get(i));
+				if (lists[i] == null) {
+					return new int[0];
+				}
+			}
+			// walk the shortest list and look each id up in the others
+			Arrays.sort(lists, Comparator.comparingInt(postings -> postings.size));
+			int[] positions = new int[lists.length];
+			int[] found = new int[Math.min(limit, lists[0].size)];
+			int count = 0;
+			for (int i = lists[0].upperBound(afterId, 0); i < lists[0].size && count < found.length; i++) {
+				int id = lists[0].ids[i];
+				boolean inAll = true;
+				for (int j = 1; j < lists.length && inAll; j++) {
+					positions[j] = lists[j].lowerBound(id, positions[j]);
+					inAll = positions[j] < lists[j].size && lists[j].ids[positions[j]] == id;
+				}
+				if (inAll) {
+					found[count++] = id;
+				}
+			}
+			return count == found.length ? found : Arrays.copyOf(found, count);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return long distinct words indexed
+	 */
+	public long getTermCount() {
+		lock.readLock().lock();
+		try {
+			return index.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return long (word, id) pairs indexed
+	 */
+	public long getPostingCount() {
+		lock.readLock().lock();
+		try {
+			return postingCount;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void addPosting(String term, int id) {
+		Postings postings = index.get(term);
+		if (postings == null) {
+			postings = new Postings();
+			index.put(term, postings);
+		}
+		if (postings.add(id)) {
+			postingCount++;
+		}
+	}
+
+	private void removePosting(String term, int id) {
+		Postings postings = index.get(term);
+		if (postings != null && postings.remove(id)) {
+			postingCount--;
+			if (postings.size == 0) {
+				index.remove(term);
+			}
+		}
+	}
+
+	/**
+	 * ids of one word in ascending order, in ids[0, size)
+	 */
+	private static final class Postings {
+		private int[] ids = new int[2];
+		private int size;
+
+		boolean add(int id) {
+			int i;
+			if (size == 0 || ids[size - 1] < id) {
+				i = size;
+			} else {
+				i = lowerBound(id, 0);
+				if (ids[i] == id) {
+					return false;
+				}
+			}
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			System.arraycopy(ids, i, ids, i + 1, size - i);
+			ids[i] = id;
+			size++;
+			return true;
+		}
+
+		boolean remove(int id) {
+			int i = lowerBound(id, 0);
+			if (i == size || ids[i] != id) {
+				return false;
+			}
+			System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+			size--;
+			return true;
+		}
+
+		void appendAll(Postings later) {
+			if (size + later.size > ids.length) {
+				ids = Arrays.copyOf(ids, Math.max(size + later.size, size * 2));
+			}
+			System.arraycopy(later.ids, 0, ids, size, later.size);
+			size += later.size;
+		}
+
+		/**
+		 * galloping search, so a run of lookups with increasing ids costs
+		 * little more than one pass over the list
+		 *
+		 * @param id
+		 * @param from index to start from; every id before it is smaller
+		 * @return int the first index at or after from whose id is not below id,
+		 *         or size
+		 */
+		int lowerBound(int id, int from) {
+			int step = 1;
+			int low = from;
+			int high = from;
+			while (high < size && ids[high] < id) {
+				low = high + 1;
+				high += step;
+				step <<= 1;
+			}
+			high = Math.min(high, size);
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (ids[mid] < id) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * @param id
+		 * @param from
+		 * @return int the first index at or after from whose id is above id, or
+		 *         size
+		 */
+		int upperBound(int id, int from) {
+			return id == Integer.MAX_VALUE ? size : lowerBound(id + 1, from);
+		}
+	}
+}
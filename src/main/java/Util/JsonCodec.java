@@ -0,0 +1,110 @@
+package Util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import io.javalin.json.JsonMapper;
+
+/**
+ * The JsonCodec class is the JSON mapper registered with Javalin, so ctx.json
+ * and the request body readers share one tuned configuration.
+ *
+ * Compared with calling ObjectMapper.readValue and writeValueAsString on every
+ * request it
+ * <ul>
+ * <li>builds one ObjectReader and ObjectWriter per type and reuses them, which
+ * skips the per-call type and configuration lookup</li>
+ * <li>registers the Blackbird module, which reads and writes properties
+ * through generated lambdas instead of reflection</li>
+ * <li>parses request bodies straight from their bytes, without decoding them
+ * to a String first</li>
+ * </ul>
+ */
+public class JsonCodec implements JsonMapper {
+
+	private final ObjectMapper mapper;
+	private final ConcurrentMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Type, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+	public JsonCodec() {
+		this(new ObjectMapper().registerModule(new BlackbirdModule()));
+	}
+
+	/**
+	 * @param mapper configured mapper the readers and writers are built from
+	 */
+	public JsonCodec(ObjectMapper mapper) {
+		this.mapper = mapper;
+	}
+
+	/**
+	 * @param type
+	 * @return ObjectReader a cached reader for type
+	 */
+	public ObjectReader reader(Type type) {
+		return readers.computeIfAbsent(type, t -> mapper.readerFor(mapper.constructType(t)));
+	}
+
+	/**
+	 * @param type
+	 * @return ObjectWriter a cached writer for type
+	 */
+	public ObjectWriter writer(Type type) {
+		return writers.computeIfAbsent(type, t -> mapper.writerFor(mapper.constructType(t)));
+	}
+
+	/**
+	 * @param obj
+	 * @param type
+	 * @return byte[] obj as UTF-8 json
+	 */
+	public byte[] toJsonBytes(Object obj, Type type) {
+		try {
+			return writer(type).writeValueAsBytes(obj);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public String toJsonString(Object obj, Type type) {
+		try {
+			return writer(type).writeValueAsString(obj);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public InputStream toJsonStream(Object obj, Type type) {
+		return new ByteArrayInputStream(toJsonBytes(obj, type));
+	}
+
+	@Override
+	public <T> T fromJsonString(String json, Type targetType) {
+		try {
+			return reader(targetType).readValue(json);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public <T> T fromJsonStream(InputStream json, Type targetType) {
+		try {
+			return reader(targetType).readValue(json);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
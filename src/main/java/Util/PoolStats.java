@@ -0,0 +1,166 @@
+package Util;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * An immutable snapshot of ConnectionPool counters, as returned by
+ * ConnectionUtil.getPoolStats().
+ */
+public class PoolStats {
+
+	private final int active;
+	private final int idle;
+	private final int waiters;
+	private final int maxSize;
+	private final long acquired;
+	private final long timeouts;
+	private final long created;
+	private final long destroyed;
+	private final long leaksDetected;
+	private final long reclaimedStatements;
+	private final long statementCacheHits;
+	private final long statementCacheMisses;
+	private final long statementCacheEvictions;
+	private final Histogram acquireMicros;
+
+	PoolStats(int active, int idle, int waiters, int maxSize, long acquired, long timeouts, long created,
+			long destroyed, long leaksDetected, long reclaimedStatements, long statementCacheHits,
+			long statementCacheMisses, long statementCacheEvictions, Histogram acquireMicros) {
+		this.active = active;
+		this.idle = idle;
+		this.waiters = waiters;
+		this.maxSize = maxSize;
+		this.acquired = acquired;
+		this.timeouts = timeouts;
+		this.created = created;
+		this.destroyed = destroyed;
+		this.leaksDetected = leaksDetected;
+		this.reclaimedStatements = reclaimedStatements;
+		this.statementCacheHits = statementCacheHits;
+		this.statementCacheMisses = statementCacheMisses;
+		this.statementCacheEvictions = statementCacheEvictions;
+		this.acquireMicros = acquireMicros;
+	}
+
+	/**
+	 * @return int connections currently leased out
+	 */
+	public int getActive() {
+		return active;
+	}
+
+	/**
+	 * @return int open connections waiting to be borrowed
+	 */
+	public int getIdle() {
+		return idle;
+	}
+
+	/**
+	 * @return int threads blocked waiting for a connection
+	 */
+	public int getWaiters() {
+		return waiters;
+	}
+
+	/**
+	 * @return int upper bound on open connections
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return long successful borrows since startup
+	 */
+	public long getAcquired() {
+		return acquired;
+	}
+
+	/**
+	 * @return long borrows that gave up after the acquire timeout
+	 */
+	public long getTimeouts() {
+		return timeouts;
+	}
+
+	/**
+	 * @return long physical connections opened since startup
+	 */
+	public long getCreated() {
+		return created;
+	}
+
+	/**
+	 * @return long physical connections closed since startup
+	 */
+	public long getDestroyed() {
+		return destroyed;
+	}
+
+	/**
+	 * @return long connections held for longer than the leak detection threshold
+	 */
+	public long getLeaksDetected() {
+		return leaksDetected;
+	}
+
+	/**
+	 * @return long statements that were still open when their connection was
+	 *         returned and had to be closed by the pool
+	 */
+	public long getReclaimedStatements() {
+		return reclaimedStatements;
+	}
+
+	/**
+	 * @return long prepareStatement calls served from a connection's statement
+	 *         cache
+	 */
+	public long getStatementCacheHits() {
+		return statementCacheHits;
+	}
+
+	/**
+	 * @return long prepareStatement calls that had to prepare a new statement
+	 */
+	public long getStatementCacheMisses() {
+		return statementCacheMisses;
+	}
+
+	/**
+	 * @return long cached statements dropped to stay within the cache size
+	 */
+	public long getStatementCacheEvictions() {
+		return statementCacheEvictions;
+	}
+
+	/**
+	 * @return Histogram time spent waiting in getConnection(), in microseconds
+	 */
+	public Histogram getAcquireMicros() {
+		return acquireMicros;
+	}
+
+	@Override
+	public String toString() {
+		return "PoolStats{" +
+				"active=" + active +
+				", idle=" + idle +
+				", waiters=" + waiters +
+				", maxSize=" + maxSize +
+				", acquired=" + acquired +
+				", timeouts=" + timeouts +
+				", created=" + created +
+				", destroyed=" + destroyed +
+				", leaksDetected=" + leaksDetected +
+				", reclaimedStatements=" + reclaimedStatements +
+				", statementCacheHits=" + statementCacheHits +
+				", statementCacheMisses=" + statementCacheMisses +
+				", statementCacheEvictions=" + statementCacheEvictions +
+				", acquireP50Micros=" + acquireMicros.getValueAtPercentile(50) +
+				", acquireP99Micros=" + acquireMicros.getValueAtPercentile(99) +
+				", acquireMaxMicros=" + acquireMicros.getMaxValue() +
+				'}';
+	}
+}
@@ -0,0 +1,253 @@
+package Util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A physical connection owned by a ConnectionPool. Callers never see this
+ * object directly; every borrow hands out a fresh Connection proxy (a lease)
+ * whose close() returns the physical connection to the pool. When statement
+ * caching is enabled, prepareStatement(sql) and
+ * prepareStatement(sql, autoGeneratedKeys) are served from a per-connection
+ * StatementCache.
+ */
+class PooledConnection {
+
+	private final ConnectionPool pool;
+	private final Connection physical;
+
+	/**
+	 * null when statement caching is disabled
+	 */
+	private final StatementCache statementCache;
+
+	/**
+	 * System.nanoTime() at which this connection last went back to the idle set
+	 */
+	volatile long lastReleasedNanos;
+
+	/**
+	 * @param pool
+	 * @param physical
+	 * @param statementCacheSize statements cached per connection. 0 disables the
+	 *                           cache
+	 */
+	PooledConnection(ConnectionPool pool, Connection physical, int statementCacheSize) {
+		this.pool = pool;
+		this.physical = physical;
+		this.statementCache = statementCacheSize > 0 ? new StatementCache(pool, physical, statementCacheSize)
+				: null;
+		this.lastReleasedNanos = System.nanoTime();
+	}
+
+	/**
+	 * @param origin stack trace of the borrower, or null when leak detection is
+	 *               off
+	 * @return Lease a new handle on the physical connection, valid until it is
+	 *         closed
+	 */
+	Lease lease(Throwable origin) {
+		return new Lease(origin);
+	}
+
+	/**
+	 * @param timeoutSeconds
+	 * @return boolean true if the physical connection still answers
+	 */
+	boolean isValid(int timeoutSeconds) {
+		try {
+			return !physical.isClosed() && physical.isValid(timeoutSeconds);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * undo any per-lease state so the next borrower starts clean
+	 *
+	 * @return boolean false if the connection is unusable and should be discarded
+	 */
+	boolean reset() {
+		try {
+			if (physical.isClosed()) {
+				return false;
+			}
+			if (!physical.getAutoCommit()) {
+				physical.rollback();
+				physical.setAutoCommit(true);
+			}
+			physical.clearWarnings();
+			return true;
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * close the physical connection, ignoring failures
+	 */
+	void closePhysical() {
+		try {
+			physical.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * The invocation handler behind a leased Connection proxy. Every call is
+	 * forwarded to the physical connection except close(), which closes any
+	 * statements the borrower left open and hands the connection back to the
+	 * pool exactly once.
+	 */
+	class Lease implements InvocationHandler {
+
+		private final AtomicBoolean closed = new AtomicBoolean();
+		private final Connection proxy;
+		private final long leasedAtNanos = System.nanoTime();
+		private final Throwable origin;
+		private final String threadName = Thread.currentThread().getName();
+		private final List<Statement> statements = new ArrayList<>(2);
+		private volatile boolean reportedAsLeak;
+
+		private Lease(Throwable origin) {
+			this.origin = origin;
+			this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, this);
+		}
+
+		/**
+		 * @return Connection the proxy handed to the borrower
+		 */
+		Connection connection() {
+			return proxy;
+		}
+
+		/**
+		 * @return long System.nanoTime() at which the connection was borrowed
+		 */
+		long leasedAtNanos() {
+			return leasedAtNanos;
+		}
+
+		/**
+		 * @return Throwable where the connection was borrowed from, or null
+		 */
+		Throwable origin() {
+			return origin;
+		}
+
+		/**
+		 * @return String the name of the borrowing thread
+		 */
+		String threadName() {
+			return threadName;
+		}
+
+		/**
+		 * flag this lease as leaked
+		 *
+		 * @return boolean true the first time this is called
+		 */
+		boolean markReported() {
+			if (reportedAsLeak) {
+				return false;
+			}
+			reportedAsLeak = true;
+			return true;
+		}
+
+		/**
+		 * @return boolean true if this lease was reported as a leak before it was
+		 *         closed
+		 */
+		boolean wasReported() {
+			return reportedAsLeak;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+				case "close":
+					if (closed.compareAndSet(false, true)) {
+						pool.release(PooledConnection.this, this, closeStatements());
+					}
+					return null;
+				case "isClosed":
+					return closed.get();
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return "PooledConnection[" + physical + "]";
+				default:
+					break;
+			}
+			if (closed.get()) {
+				throw new SQLException("Connection has already been returned to the pool");
+			}
+			Object result;
+			try {
+				if (statementCache != null && isCacheablePrepare(method, args)) {
+					result = statementCache.prepare((String) args[0], args.length == 2 ? (Integer) args[1] : null,
+							this.proxy);
+				} else {
+					result = method.invoke(physical, args);
+				}
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+			if (result instanceof Statement) {
+				synchronized (statements) {
+					statements.add((Statement) result);
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * @return boolean true for prepareStatement(String) and
+		 *         prepareStatement(String, int)
+		 */
+		private boolean isCacheablePrepare(Method method, Object[] args) {
+			if (!method.getName().equals("prepareStatement")) {
+				return false;
+			}
+			Class<?>[] types = method.getParameterTypes();
+			return types.length == 1 || (types.length == 2 && types[1] == int.class);
+		}
+
+		/**
+		 * close statements the borrower forgot about; closing a statement also
+		 * closes its result sets
+		 *
+		 * @return int number of statements that were still open
+		 */
+		private int closeStatements() {
+			int reclaimed = 0;
+			synchronized (statements) {
+				for (Statement statement : statements) {
+					try {
+						if (!statement.isClosed()) {
+							statement.close();
+							reclaimed++;
+						}
+					} catch (SQLException e) {
+						e.printStackTrace();
+					}
+				}
+				statements.clear();
+			}
+			return reclaimed;
+		}
+	}
+}
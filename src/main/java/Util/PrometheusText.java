@@ -0,0 +1,115 @@
+package Util;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * The PrometheusText class builds a scrape response in the Prometheus text
+ * exposition format (version 0.0.4).
+ *
+ * <pre>
+ * PrometheusText text = new PrometheusText();
+ * text.family("socialmedia_db_pool_waiters", "gauge", "threads waiting for a connection");
+ * text.sample("socialmedia_db_pool_waiters", "", stats.getWaiters());
+ * </pre>
+ */
+public class PrometheusText {
+
+	/**
+	 * value of the Content-Type header for a scrape response
+	 */
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+	private final StringBuilder out = new StringBuilder(8192);
+
+	/**
+	 * starts a metric family
+	 *
+	 * @param name
+	 * @param type counter, gauge or summary
+	 * @param help
+	 * @return PrometheusText this
+	 */
+	public PrometheusText family(String name, String type, String help) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+		return this;
+	}
+
+	/**
+	 * @param name
+	 * @param labels from labels(), or "" for none
+	 * @param value
+	 * @return PrometheusText this
+	 */
+	public PrometheusText sample(String name, String labels, double value) {
+		out.append(name);
+		if (!labels.isEmpty()) {
+			out.append('{').append(labels).append('}');
+		}
+		out.append(' ');
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			out.append((long) value);
+		} else {
+			out.append(value);
+		}
+		out.append('\n');
+		return this;
+	}
+
+	/**
+	 * writes the quantiles, sum and count of a summary from a histogram. The
+	 * sum is estimated from the histogram's mean
+	 *
+	 * @param name
+	 * @param labels    from labels(), or "" for none
+	 * @param histogram
+	 * @param divisor   every value is divided by it, e.g. 1e6 to turn
+	 *                  microseconds into seconds
+	 * @return PrometheusText this
+	 */
+	public PrometheusText summary(String name, String labels, Histogram histogram, double divisor) {
+		String prefix = labels.isEmpty() ? "" : labels + ",";
+		for (double quantile : QUANTILES) {
+			sample(name, prefix + "quantile=\"" + quantile + "\"",
+					histogram.getValueAtPercentile(quantile * 100) / divisor);
+		}
+		long count = histogram.getTotalCount();
+		sample(name + "_sum", labels, histogram.getMean() * count / divisor);
+		sample(name + "_count", labels, count);
+		return this;
+	}
+
+	/**
+	 * @param namesAndValues label name, value, name, value, ...
+	 * @return String the labels for sample(), with values escaped
+	 */
+	public static String labels(String... namesAndValues) {
+		StringBuilder labels = new StringBuilder();
+		for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+			if (i > 0) {
+				labels.append(',');
+			}
+			labels.append(namesAndValues[i]).append("=\"");
+			String value = namesAndValues[i + 1];
+			for (int j = 0; j < value.length(); j++) {
+				char c = value.charAt(j);
+				if (c == '\\' || c == '"') {
+					labels.append('\\').append(c);
+				} else if (c == '\n') {
+					labels.append("\\n");
+				} else {
+					labels.append(c);
+				}
+			}
+			labels.append('"');
+		}
+		return labels.toString();
+	}
+
+	@Override
+	public String toString() {
+		return out.toString();
+	}
+}
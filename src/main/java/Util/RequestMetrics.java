@@ -0,0 +1,196 @@
+package Util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * The RequestMetrics class records the latency and status code of every HTTP
+ * request by method and route, and how many requests are in flight.
+ *
+ * Register every route up front with register(). Call begin() when a request
+ * arrives and end() with the Timer it returned when the response is ready.
+ * Timers are handed back to a fixed pool by end() and reused by later
+ * begin() calls, so the start time is never boxed. end() only looks up two
+ * hash maps by existing strings, records into a fixed-size histogram and bumps
+ * atomic counters, so it allocates nothing either.
+ *
+ * Routes are the patterns handlers were registered with, e.g.
+ * "/messages/{message_id}". Requests that did not reach a registered route are
+ * counted under UNMATCHED, so the number of series stays bounded.
+ */
+public class RequestMetrics {
+
+	/**
+	 * latencies above a minute are recorded as a minute
+	 */
+	private static final long MAX_RECORDED_MICROS = 60_000_000L;
+
+	private static final int STATUS_CODES = 600;
+
+	/**
+	 * most spare Timers kept for reuse; a power of two
+	 */
+	private static final int SPARE_TIMERS = 1024;
+
+	/**
+	 * random slots begin() and end() try before they give up on the pool. The
+	 * pool settles around half full, where all of them miss about once in
+	 * 2^PROBES calls. Trying neighbouring slots instead would let full and empty
+	 * slots cluster, and then they miss far more often
+	 */
+	private static final int PROBES = 16;
+
+	/**
+	 * route of requests that matched no registered route, e.g. a 404, or that
+	 * were rejected before routing
+	 */
+	public static final String UNMATCHED = "unmatched";
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final Map<String, Map<String, Route>> routes = new ConcurrentHashMap<>();
+	private final AtomicReferenceArray<Timer> spareTimers = new AtomicReferenceArray<>(SPARE_TIMERS);
+
+	/**
+	 * @param method HTTP method
+	 * @param route  route pattern
+	 */
+	public void register(String method, String route) {
+		routes.computeIfAbsent(method, m -> new ConcurrentHashMap<>()).computeIfAbsent(route, r -> new Route());
+	}
+
+	/**
+	 * marks a request as in flight
+	 *
+	 * @return Timer the start time to hand to end(), taken from the pool when
+	 *         one is spare
+	 */
+	public Timer begin() {
+		inFlight.incrementAndGet();
+		Timer timer = takeSpareTimer();
+		timer.startNanos = System.nanoTime();
+		return timer;
+	}
+
+	/**
+	 * records a finished request and marks it as no longer in flight
+	 *
+	 * @param method HTTP method
+	 * @param route  route pattern the request matched
+	 * @param status response status code
+	 * @param timer  the value begin() returned for this request; it must not be
+	 *               used again
+	 */
+	public void end(String method, String route, int status, Timer timer) {
+		long micros = (System.nanoTime() - timer.startNanos) / 1000;
+		returnSpareTimer(timer);
+		inFlight.decrementAndGet();
+		Route stats = route(method, route);
+		stats.micros.recordValue(Math.max(0, Math.min(MAX_RECORDED_MICROS, micros)));
+		stats.statuses.incrementAndGet(status >= 0 && status < STATUS_CODES ? status : 0);
+	}
+
+	private Route route(String method, String route) {
+		Map<String, Route> byRoute = routes.get(method);
+		Route stats = byRoute == null ? null : byRoute.get(route);
+		if (stats == null) {
+			byRoute = routes.computeIfAbsent(method, m -> new ConcurrentHashMap<>());
+			stats = byRoute.get(UNMATCHED);
+			if (stats == null) {
+				stats = byRoute.computeIfAbsent(UNMATCHED, r -> new Route());
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * @return Timer a spare timer, or a new one if none was found in PROBES
+	 *         slots
+	 */
+	private Timer takeSpareTimer() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < PROBES; i++) {
+			int slot = random.nextInt(SPARE_TIMERS);
+			Timer timer = spareTimers.get(slot);
+			if (timer != null && spareTimers.compareAndSet(slot, timer, null)) {
+				return timer;
+			}
+		}
+		return new Timer();
+	}
+
+	/**
+	 * put timer back in the pool, or leave it to the garbage collector if no
+	 * free slot was found in PROBES slots
+	 *
+	 * @param timer
+	 */
+	private void returnSpareTimer(Timer timer) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < PROBES; i++) {
+			int slot = random.nextInt(SPARE_TIMERS);
+			if (spareTimers.get(slot) == null && spareTimers.compareAndSet(slot, null, timer)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return int requests that have begun and not yet ended
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * @param visitor called once per method and route that has recorded a
+	 *                request
+	 */
+	public void forEachRoute(RouteVisitor visitor) {
+		routes.forEach((method, byRoute) -> byRoute.forEach((route, stats) -> {
+			if (stats.micros.getTotalCount() == 0) {
+				return;
+			}
+			long[] statusCounts = new long[STATUS_CODES];
+			for (int i = 0; i < STATUS_CODES; i++) {
+				statusCounts[i] = stats.statuses.get(i);
+			}
+			visitor.visit(method, route, stats.micros.copy(), statusCounts);
+		}));
+	}
+
+	/**
+	 * receives a snapshot of one route
+	 */
+	@FunctionalInterface
+	public interface RouteVisitor {
+		/**
+		 * @param method
+		 * @param route
+		 * @param micros       latencies in microseconds
+		 * @param statusCounts requests per status code, indexed by the code
+		 */
+		void visit(String method, String route, Histogram micros, long[] statusCounts);
+	}
+
+	/**
+	 * start time of one request in flight
+	 */
+	public static final class Timer {
+		private long startNanos;
+
+		private Timer() {
+		}
+	}
+
+	private static class Route {
+		final Histogram micros = new ConcurrentHistogram(MAX_RECORDED_MICROS, 3);
+		final AtomicLongArray statuses = new AtomicLongArray(STATUS_CODES);
+	}
+}
@@ -0,0 +1,166 @@
+package Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.h2.tools.RunScript;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The SchemaMigrator class brings the database schema up to date by applying
+ * the versioned scripts in src/main/resources/db/migration in order. Every
+ * applied version is recorded in the schema_version table with a checksum of
+ * its script; a script that changes after it was applied stops startup rather
+ * than leaving the schema in an unknown state.
+ *
+ * To change the schema, add a new script and append it to MIGRATIONS. Never
+ * edit a script that has already shipped.
+ */
+public class SchemaMigrator {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SchemaMigrator.class);
+
+	/**
+	 * classpath folder holding the migration scripts
+	 */
+	private static final String LOCATION = "db/migration/";
+
+	/**
+	 * migration scripts in the order they must be applied. The number after "V"
+	 * is the schema version.
+	 */
+	private static final String[] MIGRATIONS = {
+			"V1__create_account_and_message.sql",
+			"V2__message_access_path_indexes.sql",
+			"V3__message_time_range_indexes.sql",
+	};
+
+	private SchemaMigrator() {
+	}
+
+	/**
+	 * apply every migration that has not been applied to the database yet
+	 *
+	 * @param connection
+	 * @throws SQLException          if a script fails; its version is left
+	 *                               unrecorded
+	 * @throws IllegalStateException if an applied script no longer matches its
+	 *                               recorded checksum
+	 */
+	public static synchronized void migrate(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+					+ "version INT PRIMARY KEY, "
+					+ "description VARCHAR(255), "
+					+ "checksum BIGINT, "
+					+ "applied_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+		}
+		Map<Integer, Long> applied = new HashMap<>();
+		try (Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("SELECT version, checksum FROM schema_version")) {
+			while (rs.next()) {
+				applied.put(rs.getInt("version"), rs.getLong("checksum"));
+			}
+		}
+		for (String script : MIGRATIONS) {
+			int version = versionOf(script);
+			String sql = load(script);
+			long checksum = checksum(sql);
+			Long recorded = applied.get(version);
+			if (recorded != null) {
+				if (recorded != checksum) {
+					throw new IllegalStateException("Migration " + script + " has changed since it was applied");
+				}
+				continue;
+			}
+			LOG.info("Applying schema migration {}", script);
+			apply(connection, script, sql, checksum);
+		}
+	}
+
+	/**
+	 * run one script and record it in schema_version in a single transaction,
+	 * so a failure in either leaves the version unrecorded and nothing of the
+	 * script's data changes committed. H2 commits DDL statements as they run,
+	 * which is why the scripts only use IF NOT EXISTS / IF EXISTS forms and can
+	 * be applied again after a failure
+	 *
+	 * @param connection
+	 * @param script
+	 * @param sql        contents of script
+	 * @param checksum
+	 * @throws SQLException
+	 */
+	private static void apply(Connection connection, String script, String sql, long checksum)
+			throws SQLException {
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try {
+			RunScript.execute(connection, new StringReader(sql));
+			try (PreparedStatement ps = connection.prepareStatement(
+					"INSERT INTO schema_version (version, description, checksum) VALUES (?, ?, ?)")) {
+				ps.setInt(1, versionOf(script));
+				ps.setString(2, descriptionOf(script));
+				ps.setLong(3, checksum);
+				ps.executeUpdate();
+			}
+			connection.commit();
+		} catch (SQLException | RuntimeException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	/**
+	 * @param script e.g. "V2__message_access_path_indexes.sql"
+	 * @return int the version number, e.g. 2
+	 */
+	private static int versionOf(String script) {
+		return Integer.parseInt(script.substring(1, script.indexOf("__")));
+	}
+
+	/**
+	 * @param script e.g. "V2__message_access_path_indexes.sql"
+	 * @return String e.g. "message access path indexes"
+	 */
+	private static String descriptionOf(String script) {
+		return script.substring(script.indexOf("__") + 2, script.lastIndexOf('.')).replace('_', ' ');
+	}
+
+	/**
+	 * CRC32 of the script with line endings normalised, so a checkout with CRLF
+	 * line endings does not look like an edited migration
+	 */
+	private static long checksum(String sql) {
+		CRC32 crc = new CRC32();
+		crc.update(sql.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+		return crc.getValue();
+	}
+
+	private static String load(String script) {
+		try (InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(LOCATION + script)) {
+			if (in == null) {
+				throw new IllegalStateException("Missing migration script " + LOCATION + script);
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			in.transferTo(out);
+			return out.toString(StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not read migration script " + LOCATION + script, e);
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package Util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A least-recently-used cache of PreparedStatements belonging to one pooled
+ * connection, keyed by SQL text and generated-keys flag. Borrowers get a
+ * PreparedStatement proxy; closing it clears the parameters and leaves the
+ * physical statement prepared for the next borrower of the same connection.
+ *
+ * A statement is handed to one borrower at a time. If the cached statement for
+ * a key is already checked out, an uncached statement is prepared instead.
+ */
+class StatementCache {
+
+	private final ConnectionPool pool;
+	private final Connection physical;
+	private final int capacity;
+	private final LinkedHashMap<Key, Entry> entries;
+
+	StatementCache(ConnectionPool pool, Connection physical, int capacity) {
+		this.pool = pool;
+		this.physical = physical;
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * @param sql
+	 * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS or
+	 *                          Statement.NO_GENERATED_KEYS, or null when the
+	 *                          caller did not specify one
+	 * @param connection        the lease the statement is handed to
+	 * @return PreparedStatement a checked-out cached statement, or a plain one
+	 *         if the cached statement is busy
+	 * @throws SQLException
+	 */
+	synchronized PreparedStatement prepare(String sql, Integer autoGeneratedKeys, Connection connection)
+			throws SQLException {
+		Key key = new Key(sql, autoGeneratedKeys);
+		Entry entry = entries.get(key);
+		if (entry != null && entry.inUse) {
+			pool.recordStatementCacheMiss();
+			return prepareUncached(key);
+		}
+		if (entry != null) {
+			pool.recordStatementCacheHit();
+		} else {
+			pool.recordStatementCacheMiss();
+			entry = new Entry(prepareUncached(key));
+			entries.put(key, entry);
+			evictOverflow();
+		}
+		entry.inUse = true;
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, new Checkout(entry, connection));
+	}
+
+	private PreparedStatement prepareUncached(Key key) throws SQLException {
+		return key.autoGeneratedKeys == null ? physical.prepareStatement(key.sql)
+				: physical.prepareStatement(key.sql, key.autoGeneratedKeys);
+	}
+
+	/**
+	 * drop least recently used statements until the cache fits its capacity.
+	 * Statements that are checked out are closed when they are returned.
+	 */
+	private void evictOverflow() {
+		Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+		while (entries.size() > capacity && it.hasNext()) {
+			Entry eldest = it.next().getValue();
+			it.remove();
+			eldest.evicted = true;
+			pool.recordStatementCacheEviction();
+			if (!eldest.inUse) {
+				closeQuietly(eldest.statement);
+			}
+		}
+	}
+
+	/**
+	 * return a checked-out statement to the cache
+	 */
+	private synchronized void checkIn(Entry entry) {
+		entry.inUse = false;
+		if (entry.evicted) {
+			closeQuietly(entry.statement);
+			return;
+		}
+		try {
+			entry.statement.clearParameters();
+			entry.statement.clearBatch();
+		} catch (SQLException e) {
+			entries.values().remove(entry);
+			closeQuietly(entry.statement);
+		}
+	}
+
+	private static void closeQuietly(PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * cache key: the SQL text plus the generated-keys flag it was prepared with
+	 */
+	private static final class Key {
+		private final String sql;
+		private final Integer autoGeneratedKeys;
+
+		private Key(String sql, Integer autoGeneratedKeys) {
+			this.sql = sql;
+			this.autoGeneratedKeys = autoGeneratedKeys;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			Key key = (Key) o;
+			return sql.equals(key.sql) && Objects.equals(autoGeneratedKeys, key.autoGeneratedKeys);
+		}
+
+		@Override
+		public int hashCode() {
+			return sql.hashCode() * 31 + Objects.hashCode(autoGeneratedKeys);
+		}
+	}
+
+	private static final class Entry {
+		private final PreparedStatement statement;
+		private boolean inUse;
+		private boolean evicted;
+
+		private Entry(PreparedStatement statement) {
+			this.statement = statement;
+		}
+	}
+
+	/**
+	 * The invocation handler behind a checked-out statement. close() returns the
+	 * statement to the cache instead of closing it.
+	 */
+	private class Checkout implements InvocationHandler {
+
+		private final Entry entry;
+		private final Connection connection;
+		private boolean closed;
+
+		private Checkout(Entry entry, Connection connection) {
+			this.entry = entry;
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+				case "close":
+					if (!closed) {
+						closed = true;
+						checkIn(entry);
+					}
+					return null;
+				case "isClosed":
+					return closed;
+				case "getConnection":
+					return connection;
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return "CachedStatement[" + entry.statement + "]";
+				default:
+					break;
+			}
+			if (closed) {
+				throw new SQLException("Statement has already been returned to the cache");
+			}
+			try {
+				return method.invoke(entry.statement, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
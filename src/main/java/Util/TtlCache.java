@@ -0,0 +1,191 @@
+package Util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The TtlCache class is a bounded, thread-safe, in-process cache with
+ * least-recently-used eviction and a time to live for every entry.
+ *
+ * Keys are spread over a fixed number of segments, each an access-ordered
+ * LinkedHashMap behind its own lock, so concurrent handler threads rarely
+ * contend. Each segment keeps a write stamp that read-through callers use to
+ * avoid caching a value that was invalidated while they were loading it:
+ *
+ * <pre>
+ * long stamp = cache.stamp(key);
+ * V value = loadFromDatabase(key);
+ * cache.putIfUnchanged(key, value, stamp);
+ * </pre>
+ */
+public class TtlCache<K, V> {
+
+	private static final int SEGMENTS = 16;
+
+	private final long ttlNanos;
+	private final Segment<K, V>[] segments;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+
+	/**
+	 * @param maxEntries upper bound on the number of cached entries
+	 * @param ttlMillis  how long an entry stays valid after it was written
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public TtlCache(int maxEntries, long ttlMillis) {
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		this.segments = new Segment[SEGMENTS];
+		int perSegment = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment<>(perSegment);
+		}
+	}
+
+	private Segment<K, V> segmentFor(Object key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments[h & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * @param key
+	 * @return V the cached value, or null if absent or expired
+	 */
+	public V get(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			Entry<V> entry = segment.map.get(key);
+			if (entry != null && System.nanoTime() - entry.writtenAtNanos < ttlNanos) {
+				hits.increment();
+				return entry.value;
+			}
+			if (entry != null) {
+				segment.map.remove(key);
+				segment.version++;
+				expirations.increment();
+			}
+		}
+		misses.increment();
+		return null;
+	}
+
+	/**
+	 * @param key
+	 * @return long the write stamp to pass to putIfUnchanged after loading the
+	 *         value for key
+	 */
+	public long stamp(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			return segment.version;
+		}
+	}
+
+	/**
+	 * cache value unless a put or invalidate has touched the key's segment since
+	 * stamp was taken
+	 *
+	 * @param key
+	 * @param value
+	 * @param stamp value returned by stamp(key) before value was loaded
+	 * @return boolean true if the value was cached
+	 */
+	public boolean putIfUnchanged(K key, V value, long stamp) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			if (segment.version != stamp) {
+				return false;
+			}
+			write(segment, key, value);
+			return true;
+		}
+	}
+
+	/**
+	 * cache value, replacing any previous value for key
+	 *
+	 * @param key
+	 * @param value
+	 */
+	public void put(K key, V value) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			write(segment, key, value);
+		}
+	}
+
+	/**
+	 * drop the cached value for key, if any
+	 *
+	 * @param key
+	 */
+	public void invalidate(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			segment.map.remove(key);
+			segment.version++;
+		}
+	}
+
+	/**
+	 * drop every cached value
+	 */
+	public void invalidateAll() {
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.map.clear();
+				segment.version++;
+			}
+		}
+	}
+
+	private void write(Segment<K, V> segment, K key, V value) {
+		segment.map.put(key, new Entry<>(value, System.nanoTime()));
+		segment.version++;
+		Iterator<Map.Entry<K, Entry<V>>> it = segment.map.entrySet().iterator();
+		while (segment.map.size() > segment.capacity && it.hasNext()) {
+			it.next();
+			it.remove();
+			evictions.increment();
+		}
+	}
+
+	/**
+	 * @return CacheStats a snapshot of the hit, miss and eviction counters
+	 */
+	public CacheStats getStats() {
+		long size = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.map.size();
+			}
+		}
+		return new CacheStats(size, hits.sum(), misses.sum(), evictions.sum(), expirations.sum());
+	}
+
+	private static final class Entry<V> {
+		private final V value;
+		private final long writtenAtNanos;
+
+		private Entry(V value, long writtenAtNanos) {
+			this.value = value;
+			this.writtenAtNanos = writtenAtNanos;
+		}
+	}
+
+	private static final class Segment<K, V> {
+		private final int capacity;
+		private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+		private long version;
+
+		private Segment(int capacity) {
+			this.capacity = capacity;
+		}
+	}
+}
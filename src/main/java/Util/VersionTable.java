@@ -0,0 +1,53 @@
+package Util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The VersionTable class keeps a version number for every int key so that a
+ * reader can tell cheaply whether what it read earlier has changed since.
+ *
+ * Writers bump a key after their write is committed and readers take the
+ * version before they read. A reader that races a writer therefore ends up
+ * with a version that is already out of date, never with the current version
+ * next to stale data:
+ *
+ * <pre>
+ * long version = versions.version(key);
+ * V value = loadFromDatabase(key);
+ * </pre>
+ *
+ * Keys share a fixed number of slots, so memory does not grow with the number
+ * of keys. A bump moves every key in its slot, which at worst makes a reader
+ * fetch something that has not changed.
+ */
+public class VersionTable {
+
+	private final AtomicLongArray versions;
+	private final int mask;
+
+	/**
+	 * @param slots number of versions kept, rounded up to a power of two
+	 */
+	public VersionTable(int slots) {
+		int size = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+		this.versions = new AtomicLongArray(size);
+		this.mask = size - 1;
+	}
+
+	/**
+	 * @param key
+	 * @return long the current version of key; 0 until key is first bumped
+	 */
+	public long version(int key) {
+		return versions.get(key & mask);
+	}
+
+	/**
+	 * mark key as changed
+	 *
+	 * @param key
+	 */
+	public void bump(int key) {
+		versions.incrementAndGet(key & mask);
+	}
+}
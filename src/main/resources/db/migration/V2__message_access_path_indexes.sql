@@ -0,0 +1,4 @@
+-- Per-account listings: posted_by lookups and keyset pages ordered by message_id.
+create index if not exists message_posted_by_message_id on message (posted_by, message_id);
+-- Time-ordered listings: time_posted_epoch ranges, with message_id as the tie breaker.
+create index if not exists message_time_posted_message_id on message (time_posted_epoch, message_id);
@@ -0,0 +1,3 @@
+-- Per-account time ranges: posted_by lookups ordered by time_posted_epoch, with message_id as the tie breaker.
+-- Global time ranges use message_time_posted_message_id from V2.
+create index if not exists message_posted_by_time_posted_message_id on message (posted_by, time_posted_epoch, message_id);
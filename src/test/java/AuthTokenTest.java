@@ -0,0 +1,125 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class AuthTokenTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private String login() throws IOException, InterruptedException {
+        HttpRequest loginRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"username\": \"testuser1\", " +
+                        "\"password\": \"password\" }"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(loginRequest, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        return response.headers().firstValue(SocialMediaController.AUTH_TOKEN_HEADER).orElseThrow();
+    }
+
+    private HttpResponse<String> postMessage(String token, String body) throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .build();
+        return webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Logging in through POST localhost:8080/login and then sending POST localhost:8080/messages with the returned
+     * token and no posted_by
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of the message, posted by the token's account
+     */
+    @Test
+    public void tokenIdentifiesPoster() throws IOException, InterruptedException {
+        String token = login();
+        HttpResponse<String> response = postMessage(token,
+                "{\"message_text\": \"posted with a token\", \"time_posted_epoch\": 1669947792}");
+        Assert.assertEquals(200, response.statusCode());
+        Message expectedResult = new Message(2, 1, "posted with a token", 1669947792);
+        Assert.assertEquals(expectedResult, objectMapper.readValue(response.body(), Message.class));
+    }
+
+    /**
+     * Sending POST localhost:8080/messages with a tampered token, or with a valid token and someone else's posted_by
+     *
+     * Expected Response:
+     *  Status Code: 401 for the tampered token, 403 for the other poster
+     */
+    @Test
+    public void tokenIsVerified() throws IOException, InterruptedException {
+        String token = login();
+        String tampered = token.replace("v1.1.", "v1.2.");
+        Assert.assertEquals(401, postMessage(tampered,
+                "{\"message_text\": \"forged\", \"time_posted_epoch\": 1669947792}").statusCode());
+        Assert.assertEquals(403, postMessage(token,
+                "{\"posted_by\": 2, \"message_text\": \"impersonated\", \"time_posted_epoch\": 1669947792}")
+                .statusCode());
+    }
+
+    /**
+     * Sending POST localhost:8080/login with an invalid token in the Authorization header
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of the account, with a new token
+     */
+    @Test
+    public void loginIgnoresInvalidToken() throws IOException, InterruptedException {
+        HttpRequest loginRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"username\": \"testuser1\", " +
+                        "\"password\": \"password\" }"))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer expired")
+                .build();
+        HttpResponse<String> response = webClient.send(loginRequest, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertTrue(response.headers().firstValue(SocialMediaController.AUTH_TOKEN_HEADER).isPresent());
+    }
+}
@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class ConditionalGetTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient for interacting
+     * locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path));
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> patch(String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/1 with the ETag of a previous GET in If-None-Match
+     *
+     * Expected Response:
+     *  Status Code: 304
+     *  Response Body: empty, with the same ETag
+     */
+    @Test
+    public void getMessageNotModified() throws IOException, InterruptedException {
+        HttpResponse<String> first = get("/messages/1", null);
+        Assert.assertEquals(200, first.statusCode());
+        String etag = first.headers().firstValue("ETag").orElse(null);
+        Assert.assertNotNull(etag);
+
+        HttpResponse<String> second = get("/messages/1", "\"stale\", " + etag);
+        Assert.assertEquals(304, second.statusCode());
+        Assert.assertEquals("", second.body());
+        Assert.assertEquals(etag, second.headers().firstValue("ETag").orElse(null));
+    }
+
+    /**
+     * Sending PATCH localhost:8080/messages/1, then GET localhost:8080/messages/1 and
+     * GET localhost:8080/accounts/1/messages with the ETags from before the patch
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the patched message, with new ETags
+     */
+    @Test
+    public void patchChangesETags() throws IOException, InterruptedException {
+        String messageEtag = get("/messages/1", null).headers().firstValue("ETag").orElse(null);
+        String listEtag = get("/accounts/1/messages", null).headers().firstValue("ETag").orElse(null);
+        Assert.assertEquals(304, get("/accounts/1/messages", listEtag).statusCode());
+
+        Assert.assertEquals(200, patch("/messages/1", "{\"message_text\": \"updated message\"}").statusCode());
+
+        HttpResponse<String> message = get("/messages/1", messageEtag);
+        Assert.assertEquals(200, message.statusCode());
+        Assert.assertTrue(message.body().contains("updated message"));
+        Assert.assertNotEquals(messageEtag, message.headers().firstValue("ETag").orElse(null));
+
+        HttpResponse<String> list = get("/accounts/1/messages", listEtag);
+        Assert.assertEquals(200, list.statusCode());
+        Assert.assertTrue(list.body().contains("updated message"));
+        Assert.assertNotEquals(listEtag, list.headers().firstValue("ETag").orElse(null));
+    }
+
+    /**
+     * Sending GET localhost:8080/accounts/1/messages with the ETag of the full listing, but asking for a page, a time
+     * range or the streamed form
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the requested page or form, with an ETag of its own that answers 304 when sent back
+     */
+    @Test
+    public void listETagCoversQueryParameters() throws IOException, InterruptedException {
+        String listEtag = get("/accounts/1/messages", null).headers().firstValue("ETag").orElse(null);
+        Assert.assertNotNull(listEtag);
+
+        for (String query : new String[] { "?limit=1", "?limit=2", "?since=0&until=1669947793",
+                "?stream=true" }) {
+            HttpResponse<String> response = get("/accounts/1/messages" + query, listEtag);
+            Assert.assertEquals(query, 200, response.statusCode());
+            String etag = response.headers().firstValue("ETag").orElse(null);
+            Assert.assertNotEquals(query, listEtag, etag);
+            Assert.assertEquals(query, 304, get("/accounts/1/messages" + query, etag).statusCode());
+        }
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/1 with an ETag handed out by a previous run of the server
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of the message
+     */
+    @Test
+    public void restartInvalidatesETags() throws IOException, InterruptedException {
+        String etag = get("/messages/1", null).headers().firstValue("ETag").orElse(null);
+        app.stop();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        app.start(8080);
+        Thread.sleep(1000);
+
+        Assert.assertEquals(200, get("/messages/1", etag).statusCode());
+    }
+}
@@ -0,0 +1,92 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class GroupCommitMessageTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app with group commit enabled, and create a new
+     * webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        System.setProperty("socialmedia.groupCommit.enabled", "true");
+        System.setProperty("socialmedia.groupCommit.maxDelayMillis", "20");
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        System.clearProperty("socialmedia.groupCommit.enabled");
+        System.clearProperty("socialmedia.groupCommit.maxDelayMillis");
+    }
+
+    private CompletableFuture<HttpResponse<String>> postMessage(int posted_by, String text) {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{"+
+                        "\"posted_by\":" + posted_by + ", " +
+                        "\"message_text\": \"" + text + "\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.sendAsync(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending concurrent http requests to POST localhost:8080/messages while group commit is enabled, one of them
+     * from a poster that does not exist
+     *
+     * Expected Response:
+     *  Status Code: 200 with a distinct message_id for every valid post, 400 for the unknown poster
+     */
+    @Test
+    public void concurrentPostsEachGetTheirOwnMessage() throws Exception {
+        List<CompletableFuture<HttpResponse<String>>> posts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            posts.add(postMessage(1, "grouped " + i));
+        }
+        CompletableFuture<HttpResponse<String>> unknownPoster = postMessage(2, "no such poster");
+
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < posts.size(); i++) {
+            HttpResponse<String> response = posts.get(i).get();
+            Assert.assertEquals(200, response.statusCode());
+            Message message = objectMapper.readValue(response.body(), Message.class);
+            Assert.assertEquals("grouped " + i, message.message_text);
+            ids.add(message.message_id);
+        }
+        Assert.assertEquals(20, ids.size());
+        Assert.assertEquals(400, unknownPoster.get().statusCode());
+    }
+}
@@ -0,0 +1,52 @@
+package Load;
+
+/**
+ * The eight API endpoints the load generator drives. The name is how an
+ * endpoint is written in a mix, e.g. mix=getMessage:60,postMessage:40.
+ */
+public enum Endpoint {
+    REGISTER("register", "POST /register"),
+    LOGIN("login", "POST /login"),
+    POST_MESSAGE("postMessage", "POST /messages"),
+    GET_ALL_MESSAGES("getAllMessages", "GET /messages"),
+    GET_MESSAGE("getMessage", "GET /messages/{message_id}"),
+    PATCH_MESSAGE("patchMessage", "PATCH /messages/{message_id}"),
+    DELETE_MESSAGE("deleteMessage", "DELETE /messages/{message_id}"),
+    GET_ACCOUNT_MESSAGES("getAccountMessages", "GET /accounts/{account_id}/messages");
+
+    private final String name;
+    private final String route;
+
+    Endpoint(String name, String route) {
+        this.name = name;
+        this.route = route;
+    }
+
+    /**
+     * @return String the name used in mixes and reports
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return String the HTTP method and path
+     */
+    public String getRoute() {
+        return route;
+    }
+
+    /**
+     * @param name
+     * @return Endpoint the endpoint with that name, ignoring case
+     * @throws IllegalArgumentException if there is none
+     */
+    public static Endpoint named(String name) {
+        for (Endpoint endpoint : values()) {
+            if (endpoint.name.equalsIgnoreCase(name)) {
+                return endpoint;
+            }
+        }
+        throw new IllegalArgumentException("unknown endpoint " + name);
+    }
+}
@@ -0,0 +1,320 @@
+package Load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import Controller.SocialMediaController;
+import io.javalin.Javalin;
+
+/**
+ * Capacity test of the whole stack: starts SocialMediaController.startAPI on
+ * a random port against a seeded database and drives a Workload mix of the
+ * eight endpoints over real HTTP, then prints throughput and latency
+ * percentiles per endpoint.
+ *
+ * Two modes:
+ * <ul>
+ * <li>open: requests are sent on a fixed schedule of rate per second whether
+ * or not earlier ones have finished, like independent users. At most
+ * maxInFlight are outstanding; a request that has to wait for a slot is still
+ * timed from its scheduled send time</li>
+ * <li>closed: connections workers each send a request and wait for the answer
+ * before sending the next, like a fixed pool of clients. With a rate each
+ * worker follows its share of that schedule; without one they send as fast as
+ * the server answers</li>
+ * </ul>
+ *
+ * Latency is measured from when a request was supposed to be sent, not from
+ * when it was sent, so a stalled server is charged for the requests it held up
+ * (coordinated omission). Service time, from the actual send, is reported
+ * beside it. An unpaced closed loop has no schedule, so there the two are the
+ * same.
+ *
+ * Arguments are key=value pairs; keys starting with socialmedia. become system
+ * properties, so server settings can be changed too:
+ *
+ * <pre>
+ * mvn -Pload test-compile exec:exec -Dload.args="mode=open rate=2000 mix=write socialmedia.server.threads=virtual"
+ * </pre>
+ */
+public class LoadGenerator {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("mode", "closed");
+        DEFAULTS.put("rate", "0");
+        DEFAULTS.put("connections", "64");
+        DEFAULTS.put("maxInFlight", "1024");
+        DEFAULTS.put("duration", "30");
+        DEFAULTS.put("warmup", "10");
+        DEFAULTS.put("mix", "read");
+        DEFAULTS.put("accounts", "1000");
+        DEFAULTS.put("messages", "100000");
+        DEFAULTS.put("zipf", "1.0");
+    }
+
+    private final Map<String, String> options;
+    private final Workload workload;
+    private final HttpClient client;
+    private final Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+
+    private long measureStart;
+    private long end;
+
+    LoadGenerator(Map<String, String> options, Workload workload, HttpClient client) {
+        this.options = options;
+        this.workload = workload;
+        this.client = client;
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 1) {
+                throw new IllegalArgumentException("arguments look like key=value, got " + arg);
+            }
+            String key = arg.substring(0, eq);
+            if (key.startsWith("socialmedia.")) {
+                System.setProperty(key, arg.substring(eq + 1));
+            } else if (DEFAULTS.containsKey(key)) {
+                options.put(key, arg.substring(eq + 1));
+            } else {
+                throw new IllegalArgumentException("unknown option " + key + ", expected one of " + DEFAULTS.keySet());
+            }
+        }
+        // a private in-memory database unless one is named, so ./h2 is untouched
+        if (System.getProperty("socialmedia.db.url") == null) {
+            System.setProperty("socialmedia.db.url", "jdbc:h2:mem:load;DB_CLOSE_DELAY=-1");
+        }
+        if (System.getProperty("socialmedia.startup.explainPlans") == null) {
+            System.setProperty("socialmedia.startup.explainPlans", "false");
+        }
+
+        int accounts = Integer.parseInt(options.get("accounts"));
+        int messages = Integer.parseInt(options.get("messages"));
+        SeedData.seed(accounts, messages);
+
+        Javalin app = new SocialMediaController().startAPI();
+        app.start(0);
+        try {
+            Workload workload = new Workload("http://localhost:" + app.port(), options.get("mix"), accounts, messages,
+                    Double.parseDouble(options.get("zipf")));
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            LoadGenerator generator = new LoadGenerator(options, workload, client);
+            generator.run();
+            generator.report(System.out);
+        } finally {
+            app.stop();
+        }
+    }
+
+    /**
+     * runs the warmup and then the measured period
+     *
+     * @throws InterruptedException
+     */
+    void run() throws InterruptedException {
+        long start = System.nanoTime();
+        measureStart = start + TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("warmup")));
+        end = measureStart + TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("duration")));
+        double rate = Double.parseDouble(options.get("rate"));
+        switch (options.get("mode")) {
+        case "open":
+            if (rate <= 0) {
+                throw new IllegalArgumentException("open mode needs a rate");
+            }
+            runOpen(start, rate, Integer.parseInt(options.get("maxInFlight")));
+            break;
+        case "closed":
+            runClosed(start, rate, Integer.parseInt(options.get("connections")));
+            break;
+        default:
+            throw new IllegalArgumentException("mode is open or closed, got " + options.get("mode"));
+        }
+    }
+
+    private void runOpen(long start, double rate, int maxInFlight) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        for (long i = 0;; i++) {
+            long intended = start + (long) (i * 1e9 / rate);
+            if (intended >= end) {
+                break;
+            }
+            waitUntil(intended);
+            inFlight.acquire();
+            Endpoint endpoint = workload.nextEndpoint();
+            HttpRequest request = workload.request(endpoint);
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+                record(endpoint, intended, sent, response, error);
+                inFlight.release();
+            });
+        }
+        // let the last requests finish
+        if (!inFlight.tryAcquire(maxInFlight, 60, TimeUnit.SECONDS)) {
+            System.err.println((maxInFlight - inFlight.availablePermits()) + " requests still in flight");
+        }
+    }
+
+    private void runClosed(long start, double rate, int connections) throws InterruptedException {
+        // each worker keeps its own share of the schedule, staggered so they do
+        // not all send at once
+        long interval = rate > 0 ? (long) (connections * 1e9 / rate) : 0;
+        List<Thread> workers = new ArrayList<>();
+        for (int w = 0; w < connections; w++) {
+            long first = start + interval * w / connections;
+            Thread worker = new Thread(() -> {
+                long next = first;
+                while (true) {
+                    long intended = interval > 0 ? next : System.nanoTime();
+                    if (intended >= end) {
+                        return;
+                    }
+                    waitUntil(intended);
+                    Endpoint endpoint = workload.nextEndpoint();
+                    HttpRequest request = workload.request(endpoint);
+                    long sent = System.nanoTime();
+                    try {
+                        record(endpoint, intended, sent, client.send(request, HttpResponse.BodyHandlers.ofString()),
+                                null);
+                    } catch (IOException e) {
+                        record(endpoint, intended, sent, null, e);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    next += interval;
+                }
+            }, "load-" + w);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * records a finished request, unless it was scheduled during the warmup
+     */
+    private void record(Endpoint endpoint, long intended, long sent, HttpResponse<String> response, Throwable error) {
+        long done = System.nanoTime();
+        if (response != null) {
+            workload.completed(endpoint, response);
+        }
+        if (intended < measureStart) {
+            return;
+        }
+        EndpointStats endpointStats = stats.get(endpoint);
+        if (error != null) {
+            endpointStats.failed.increment();
+            return;
+        }
+        endpointStats.latency.recordValue(TimeUnit.NANOSECONDS.toMicros(done - intended));
+        endpointStats.serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(done - sent));
+        if (response.statusCode() / 100 != 2) {
+            endpointStats.non2xx.increment();
+        }
+    }
+
+    /**
+     * prints the options, then a row per endpoint of the mix and a total row
+     * for latency and for service time
+     *
+     * @param out
+     */
+    void report(PrintStream out) {
+        double seconds = Double.parseDouble(options.get("duration"));
+        out.println();
+        out.println(options);
+        Histogram totalLatency = new Histogram(3);
+        Histogram totalService = new Histogram(3);
+        long totalNon2xx = 0;
+        long totalFailed = 0;
+        for (EndpointStats endpointStats : stats.values()) {
+            totalLatency.add(endpointStats.latency);
+            totalService.add(endpointStats.serviceTime);
+            totalNon2xx += endpointStats.non2xx.sum();
+            totalFailed += endpointStats.failed.sum();
+        }
+        out.printf("%.1f requests/s%n", totalLatency.getTotalCount() / seconds);
+
+        out.println();
+        out.println("latency from the scheduled send, ms (corrected for coordinated omission)");
+        header(out);
+        for (Map.Entry<Endpoint, EndpointStats> entry : stats.entrySet()) {
+            EndpointStats endpointStats = entry.getValue();
+            if (endpointStats.latency.getTotalCount() > 0 || endpointStats.failed.sum() > 0) {
+                row(out, entry.getKey().getName(), endpointStats.latency, endpointStats.non2xx.sum(),
+                        endpointStats.failed.sum(), seconds);
+            }
+        }
+        row(out, "total", totalLatency, totalNon2xx, totalFailed, seconds);
+
+        out.println();
+        out.println("service time from the actual send, ms");
+        header(out);
+        for (Map.Entry<Endpoint, EndpointStats> entry : stats.entrySet()) {
+            EndpointStats endpointStats = entry.getValue();
+            if (endpointStats.serviceTime.getTotalCount() > 0 || endpointStats.failed.sum() > 0) {
+                row(out, entry.getKey().getName(), endpointStats.serviceTime, endpointStats.non2xx.sum(),
+                        endpointStats.failed.sum(), seconds);
+            }
+        }
+        row(out, "total", totalService, totalNon2xx, totalFailed, seconds);
+    }
+
+    private static void header(PrintStream out) {
+        out.printf("%-20s %9s %9s %7s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "req/s", "non2xx", "failed", "p50", "p90", "p99", "p99.9", "max");
+    }
+
+    private static void row(PrintStream out, String name, Histogram histogram, long non2xx, long failed,
+            double seconds) {
+        out.printf("%-20s %9d %9.1f %7d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, histogram.getTotalCount(), histogram.getTotalCount() / seconds, non2xx, failed,
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * latency and service time in microseconds, and error counts, of one
+     * endpoint
+     */
+    private static class EndpointStats {
+        final Histogram latency = new ConcurrentHistogram(3);
+        final Histogram serviceTime = new ConcurrentHistogram(3);
+        final LongAdder non2xx = new LongAdder();
+        final LongAdder failed = new LongAdder();
+    }
+}
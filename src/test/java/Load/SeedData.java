@@ -0,0 +1,80 @@
+package Load;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import Util.ConnectionUtil;
+
+/**
+ * Fills the database with generated accounts and messages for the load
+ * generator and the benchmarks.
+ *
+ * Account 1 and message 1 are the usual test fixture rows. The remaining rows
+ * are generated by H2 in one INSERT ... SELECT per table, so even ten million
+ * messages seed in seconds rather than minutes. Account n is "user" + n with
+ * password "password", messages are spread round-robin over the accounts and
+ * their time_posted_epoch increases with message_id.
+ */
+public class SeedData {
+
+    private static final String COUNT_ACCOUNTS = "SELECT COUNT(*) FROM account";
+    private static final String COUNT_MESSAGES = "SELECT COUNT(*) FROM message";
+    private static final String SEED_ACCOUNTS = "INSERT INTO account (username, password) "
+            + "SELECT 'user' || X, 'password' FROM SYSTEM_RANGE(2, ?)";
+    private static final String SEED_MESSAGES = "INSERT INTO message (posted_by, message_text, time_posted_epoch) "
+            + "SELECT MOD(X, ?) + 1, 'benchmark message ' || X, 1669947792 + X FROM SYSTEM_RANGE(2, ?)";
+
+    private SeedData() {
+    }
+
+    /**
+     * migrates the schema and seeds accounts and messages. If the database
+     * already holds exactly the requested rows it is left alone, which saves
+     * reseeding a large file database for every run
+     *
+     * @param accounts number of accounts, at least 1
+     * @param messages number of messages, at least 1
+     * @throws SQLException
+     */
+    public static void seed(int accounts, int messages) throws SQLException {
+        if (accounts < 1 || messages < 1) {
+            throw new IllegalArgumentException("accounts and messages must be at least 1");
+        }
+        ConnectionUtil.migrate();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            if (count(connection, COUNT_ACCOUNTS) == accounts && count(connection, COUNT_MESSAGES) == messages) {
+                return;
+            }
+        }
+        ConnectionUtil.resetTestDatabase();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            try (PreparedStatement ps = connection.prepareStatement(SEED_ACCOUNTS)) {
+                ps.setInt(1, accounts);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(SEED_MESSAGES)) {
+                ps.setInt(1, accounts);
+                ps.setInt(2, messages);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private static long count(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * @param account_id a seeded account_id
+     * @return String the username seeded for account_id
+     */
+    public static String username(int account_id) {
+        return account_id == 1 ? "testuser1" : "user" + account_id;
+    }
+}
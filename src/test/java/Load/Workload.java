@@ -0,0 +1,195 @@
+package Load;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Model.Message;
+
+/**
+ * Picks the next request of a load test. Endpoints are drawn by weight from a
+ * mix, and the account and message each request touches are drawn from Zipf
+ * distributions over the seeded rows, so a few accounts and messages are hot.
+ * Popularity follows id: account 1 and message 1 are the most popular.
+ *
+ * Deletes remove messages this workload posted itself, so they do not eat the
+ * hot seeded messages the reads depend on. If none are left a delete targets
+ * a seeded message instead. Listings ask for one page of PAGE_LIMIT messages,
+ * as a client would.
+ *
+ * Safe to share between threads.
+ */
+public class Workload {
+
+    /**
+     * ready-made mixes, as weights in Endpoint order
+     */
+    private static final Map<String, int[]> PRESETS = Map.of(
+            // register, login, post, all, get, patch, delete, account
+            "read", new int[] { 1, 4, 10, 10, 40, 4, 1, 30 },
+            "write", new int[] { 5, 5, 40, 5, 20, 15, 5, 5 },
+            "balanced", new int[] { 3, 5, 25, 10, 25, 10, 2, 20 });
+
+    static final int PAGE_LIMIT = 20;
+
+    private final String baseUri;
+    private final Endpoint[] endpoints;
+    private final int[] cumulativeWeights;
+    private final Zipf accounts;
+    private final Zipf messages;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ConcurrentLinkedQueue<Integer> posted = new ConcurrentLinkedQueue<>();
+    private final AtomicLong registrations = new AtomicLong();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    /**
+     * @param baseUri      e.g. http://localhost:8080
+     * @param mix          a preset name (read, write or balanced) or weights
+     *                     such as getMessage:60,postMessage:40
+     * @param accountCount number of seeded accounts
+     * @param messageCount number of seeded messages
+     * @param exponent     Zipf skew of account and message popularity
+     */
+    public Workload(String baseUri, String mix, int accountCount, int messageCount, double exponent) {
+        this.baseUri = baseUri;
+        Map<Endpoint, Integer> weights = parseMix(mix);
+        this.endpoints = weights.keySet().toArray(new Endpoint[0]);
+        this.cumulativeWeights = new int[endpoints.length];
+        int total = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            total += weights.get(endpoints[i]);
+            cumulativeWeights[i] = total;
+        }
+        this.accounts = new Zipf(accountCount, exponent);
+        this.messages = new Zipf(messageCount, exponent);
+    }
+
+    /**
+     * @param mix a preset name or comma separated endpoint:weight pairs
+     * @return Map<Endpoint, Integer> the positive weight of every endpoint in the
+     *         mix
+     * @throws IllegalArgumentException if the mix cannot be parsed or has no
+     *                                  positive weight
+     */
+    static Map<Endpoint, Integer> parseMix(String mix) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        int[] preset = PRESETS.get(mix);
+        if (preset != null) {
+            for (Endpoint endpoint : Endpoint.values()) {
+                weights.put(endpoint, preset[endpoint.ordinal()]);
+            }
+        } else {
+            for (String entry : mix.split(",")) {
+                String[] pair = entry.trim().split(":");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("mix entries look like getMessage:60, got " + entry);
+                }
+                weights.put(Endpoint.named(pair[0].trim()), Integer.parseInt(pair[1].trim()));
+            }
+        }
+        weights.values().removeIf(weight -> weight <= 0);
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("mix " + mix + " has no positive weight");
+        }
+        return weights;
+    }
+
+    /**
+     * @return Endpoint the endpoint of the next request, drawn by weight
+     */
+    public Endpoint nextEndpoint() {
+        int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return endpoints[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * @param endpoint
+     * @return HttpRequest a request to endpoint with a Zipf-drawn account or
+     *         message
+     */
+    public HttpRequest request(Endpoint endpoint) {
+        switch (endpoint) {
+        case REGISTER:
+            return post("/register", credentials("load-" + runId + "-" + registrations.incrementAndGet()));
+        case LOGIN:
+            return post("/login", credentials(SeedData.username(nextAccount())));
+        case POST_MESSAGE:
+            return post("/messages", "{\"posted_by\": " + nextAccount()
+                    + ", \"message_text\": \"load test message\", \"time_posted_epoch\": "
+                    + System.currentTimeMillis() / 1000 + "}");
+        case GET_ALL_MESSAGES:
+            return get("/messages?limit=" + PAGE_LIMIT);
+        case GET_MESSAGE:
+            return get("/messages/" + nextMessage());
+        case PATCH_MESSAGE:
+            return builder("/messages/" + nextMessage())
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString(
+                            "{\"message_text\": \"edited " + System.nanoTime() + "\"}"))
+                    .build();
+        case DELETE_MESSAGE:
+            Integer own = posted.poll();
+            return builder("/messages/" + (own != null ? own : nextMessage())).DELETE().build();
+        case GET_ACCOUNT_MESSAGES:
+            return get("/accounts/" + nextAccount() + "/messages?limit=" + PAGE_LIMIT);
+        default:
+            throw new IllegalArgumentException(endpoint.name());
+        }
+    }
+
+    /**
+     * remembers the message_id of a successful post, so a later delete can
+     * remove it
+     *
+     * @param endpoint
+     * @param response
+     */
+    public void completed(Endpoint endpoint, HttpResponse<String> response) {
+        if (endpoint != Endpoint.POST_MESSAGE || response.statusCode() != 200) {
+            return;
+        }
+        try {
+            posted.add(mapper.readValue(response.body(), Message.class).getMessage_id());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private int nextAccount() {
+        return (int) accounts.next();
+    }
+
+    private int nextMessage() {
+        return (int) messages.next();
+    }
+
+    private static String credentials(String username) {
+        return "{\"username\": \"" + username + "\", \"password\": \"password\"}";
+    }
+
+    private HttpRequest.Builder builder(String path) {
+        return HttpRequest.newBuilder().uri(URI.create(baseUri + path));
+    }
+
+    private HttpRequest get(String path) {
+        return builder(path).GET().build();
+    }
+
+    private HttpRequest post(String path, String body) {
+        return builder(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
@@ -0,0 +1,86 @@
+package Load;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws ranks 1..n with Zipf probabilities: rank k is picked with probability
+ * proportional to 1 / k^exponent, so a few ranks are hot and most are cold.
+ * An exponent of 0 is uniform; social workloads are usually close to 1.
+ *
+ * Uses the rejection-inversion method of Hoermann and Derflinger, which needs
+ * no table, so n can be in the millions, and takes constant expected time per
+ * draw. Safe to share between threads.
+ */
+public class Zipf {
+
+    private final long n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    /**
+     * @param n        number of ranks, at least 1
+     * @param exponent skew, at least 0
+     */
+    public Zipf(long n, double exponent) {
+        if (n < 1 || exponent < 0) {
+            throw new IllegalArgumentException("n must be at least 1 and exponent at least 0");
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * @return long a rank in 1..n
+     */
+    public long next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            long k = Math.max(1, Math.min(n, (long) (x + 0.5)));
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    /**
+     * @return long the number of ranks
+     */
+    public long size() {
+        return n;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = Math.max(-1, x * (1 - exponent));
+        return Math.exp(helper1(t) * x);
+    }
+
+    /**
+     * log1p(x) / x, accurate near 0
+     */
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    /**
+     * expm1(x) / x, accurate near 0
+     */
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}
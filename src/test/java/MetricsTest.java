@@ -0,0 +1,114 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class MetricsTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient for interacting
+     * locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/1 twice and GET localhost:8080/nope, then GET localhost:8080/metrics
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Prometheus text with the requests counted by route and status code, their latency, and the
+     *  connection pool and cache statistics
+     */
+    @Test
+    public void metricsCountRequestsByRoute() throws IOException, InterruptedException {
+        Assert.assertEquals(200, get("/messages/1").statusCode());
+        Assert.assertEquals(200, get("/messages/1").statusCode());
+        Assert.assertEquals(404, get("/nope").statusCode());
+
+        HttpResponse<String> response = get("/metrics");
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+        String body = response.body();
+        Assert.assertTrue(body, body.contains(
+                "socialmedia_http_requests_total{method=\"GET\",route=\"/messages/{message_id}\",status=\"200\"} 2\n"));
+        Assert.assertTrue(body, body.contains(
+                "socialmedia_http_requests_total{method=\"GET\",route=\"unmatched\",status=\"404\"} 1\n"));
+        Assert.assertTrue(body, body.contains(
+                "socialmedia_http_request_duration_seconds_count{method=\"GET\",route=\"/messages/{message_id}\"} 2\n"));
+        Assert.assertTrue(body, body.contains("socialmedia_http_requests_in_flight 1\n"));
+        Assert.assertTrue(body, body.contains("# TYPE socialmedia_db_pool_acquire_seconds summary\n"));
+        Assert.assertTrue(body, body.contains("# TYPE socialmedia_message_cache_hits_total counter\n"));
+    }
+
+    /**
+     * Sending PATCH localhost:8080/messages/1, then GET localhost:8080/metrics
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Prometheus text with the DAO query behind the patch counted and timed in its acquire, execute
+     *  and map phases
+     */
+    @Test
+    public void metricsTimeDaoQueries() throws IOException, InterruptedException {
+        // query metrics are kept per JVM, so compare against the count before the patch
+        String labels = "query=\"MessageDAO.updateMessageByMessageIdReturningOld\"";
+        long before = sample(get("/metrics").body(), "socialmedia_db_queries_total{" + labels + "}");
+
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"message_text\": \"updated message\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        String body = get("/metrics").body();
+        Assert.assertEquals(before + 1, sample(body, "socialmedia_db_queries_total{" + labels + "}"));
+        for (String phase : new String[] { "acquire", "execute", "map" }) {
+            Assert.assertEquals(before + 1,
+                    sample(body, "socialmedia_db_query_seconds_count{" + labels + ",phase=\"" + phase + "\"}"));
+        }
+    }
+
+    private static long sample(String body, String series) {
+        for (String line : body.split("\n")) {
+            if (line.startsWith(series + " ")) {
+                return Long.parseLong(line.substring(series.length() + 1));
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,135 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class PaginateMessagesTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private void postMessage(String text) throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{"+
+                        "\"posted_by\":1, " +
+                        "\"message_text\": \"" + text + "\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Following the X-Next-Cursor header from GET localhost:8080/messages?limit=2 should visit every message
+     * exactly once, in message_id order.
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON list of at most 2 messages per page
+     */
+    @Test
+    public void paginateAllMessages() throws IOException, InterruptedException {
+        postMessage("message 2");
+        postMessage("message 3");
+        postMessage("message 4");
+
+        List<Integer> visited = new ArrayList<>();
+        String path = "/messages?limit=2";
+        int pages = 0;
+        while (path != null) {
+            HttpResponse<String> response = get(path);
+            Assert.assertEquals(200, response.statusCode());
+            List<Message> page = objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+            Assert.assertTrue(page.size() <= 2);
+            page.forEach(message -> visited.add(message.message_id));
+            pages++;
+            Optional<String> cursor = response.headers().firstValue(SocialMediaController.NEXT_CURSOR_HEADER);
+            path = cursor.map(c -> "/messages?limit=2&after=" + c).orElse(null);
+        }
+        Assert.assertEquals(2, pages);
+        Assert.assertEquals(List.of(1, 2, 3, 4), visited);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1/messages?limit=1 when the account has two messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON list containing only the first message, with a cursor for the second
+     */
+    @Test
+    public void paginateMessagesForUser() throws IOException, InterruptedException {
+        postMessage("message 2");
+
+        HttpResponse<String> first = get("/accounts/1/messages?limit=1");
+        Assert.assertEquals(200, first.statusCode());
+        List<Message> firstPage = objectMapper.readValue(first.body(), new TypeReference<List<Message>>(){});
+        Assert.assertEquals(List.of(new Message(1, 1, "test message 1", 1669947792)), firstPage);
+
+        String cursor = first.headers().firstValue(SocialMediaController.NEXT_CURSOR_HEADER).orElseThrow();
+        HttpResponse<String> second = get("/accounts/1/messages?limit=1&after=" + cursor);
+        List<Message> secondPage = objectMapper.readValue(second.body(), new TypeReference<List<Message>>(){});
+        Assert.assertEquals(List.of(new Message(2, 1, "message 2", 1669947792)), secondPage);
+        Assert.assertTrue(second.headers().firstValue(SocialMediaController.NEXT_CURSOR_HEADER).isEmpty());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages with an illformed limit or cursor
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void paginateMessagesBadParameters() throws IOException, InterruptedException {
+        Assert.assertEquals(400, get("/messages?limit=0").statusCode());
+        Assert.assertEquals(400, get("/messages?limit=abc").statusCode());
+        Assert.assertEquals(400, get("/messages?limit=2&after=not-a-cursor").statusCode());
+    }
+}
@@ -0,0 +1,32 @@
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import DAO.QueryPlans;
+import Util.ConnectionUtil;
+
+public class QueryPlansTest {
+
+    /**
+     * Before every test, reset the database so the plans are made against the migrated schema.
+     */
+    @Before
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+    }
+
+    /**
+     * Asking H2 to EXPLAIN every keyset page and stream query
+     *
+     * Expected Result:
+     *  Every plan reads an index in ORDER BY order ("index sorted"), so no query sorts all of its matching rows
+     */
+    @Test
+    public void keysetQueriesReadIndexesInOrder() throws SQLException {
+        List<String> unsorted = QueryPlans.unsortedQueries();
+        Assert.assertTrue(unsorted.toString(), unsorted.isEmpty());
+    }
+}
@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class SearchMessagesTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private Message post(String text) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("POST", "/messages",
+                "{\"posted_by\":1, \"message_text\": \"" + text + "\", \"time_posted_epoch\": 1669947793}");
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), Message.class);
+    }
+
+    private List<Message> search(String query) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET",
+                "/messages/search?q=" + URLEncoder.encode(query, StandardCharsets.UTF_8), null);
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/search?q=test%20MESSAGE for the seeded message
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON list holding the message indexed when the app started
+     */
+    @Test
+    public void searchFindsSeededMessage() throws IOException, InterruptedException {
+        Assert.assertEquals(List.of(new Message(1, 1, "test message 1", 1669947792)), search("test MESSAGE"));
+        Assert.assertEquals(List.of(), search("test nothing"));
+    }
+
+    /**
+     * Sending POST, PATCH and DELETE localhost:8080/messages, then GET localhost:8080/messages/search
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: only the messages whose current text contains every word of the query, in message_id order
+     */
+    @Test
+    public void searchFollowsWrites() throws IOException, InterruptedException {
+        Message first = post("Hello, big world!");
+        Message second = post("hello small world");
+        Message third = post("goodbye world");
+
+        Assert.assertEquals(List.of(first, second), search("world hello"));
+
+        Assert.assertEquals(200, send("PATCH", "/messages/" + first.message_id,
+                "{\"message_text\": \"goodbye big world\"}").statusCode());
+        first.message_text = "goodbye big world";
+        Assert.assertEquals(200, send("DELETE", "/messages/" + third.message_id, null).statusCode());
+
+        Assert.assertEquals(List.of(second), search("hello world"));
+        Assert.assertEquals(List.of(first), search("goodbye"));
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/search?q=page&limit=2 and following the X-Next-Cursor header
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every matching message exactly once across the pages, in message_id order
+     */
+    @Test
+    public void searchPagesThroughResults() throws IOException, InterruptedException {
+        List<Message> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expected.add(post("page " + i));
+        }
+        List<Message> paged = new ArrayList<>();
+        String path = "/messages/search?q=page&limit=2";
+        while (path != null) {
+            HttpResponse<String> response = send("GET", path, null);
+            paged.addAll(objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){}));
+            String next = response.headers().firstValue(SocialMediaController.NEXT_CURSOR_HEADER).orElse(null);
+            path = next == null ? null : "/messages/search?q=page&limit=2&after=" + next;
+        }
+        Assert.assertEquals(expected, paged);
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/search without q, and with a q that has no words
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void searchWithoutWordsIsRejected() throws IOException, InterruptedException {
+        Assert.assertEquals(400, send("GET", "/messages/search", null).statusCode());
+        Assert.assertEquals(400, send("GET", "/messages/search?q=%21%3F", null).statusCode());
+    }
+}
@@ -0,0 +1,136 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Account;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class TimeRangeMessagesTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private Message post(int posted_by, long time_posted_epoch) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("POST", "/messages", "{\"posted_by\":" + posted_by
+                + ", \"message_text\": \"at " + time_posted_epoch + "\", \"time_posted_epoch\": " + time_posted_epoch + "}");
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), Message.class);
+    }
+
+    private List<Message> getAllPages(String path) throws IOException, InterruptedException {
+        List<Message> messages = new ArrayList<>();
+        String next = path;
+        while (next != null) {
+            HttpResponse<String> response = send("GET", next, null);
+            Assert.assertEquals(200, response.statusCode());
+            messages.addAll(objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){}));
+            String cursor = response.headers().firstValue(SocialMediaController.NEXT_CURSOR_HEADER).orElse(null);
+            next = cursor == null ? null : path + "&after=" + cursor;
+        }
+        return messages;
+    }
+
+    /**
+     * Sending GET localhost:8080/messages?since=200&until=300&limit=1 and following the X-Next-Cursor header
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every message with 200 <= time_posted_epoch < 300 exactly once, in time_posted_epoch order
+     */
+    @Test
+    public void getMessagesInTimeRange() throws IOException, InterruptedException {
+        Message late = post(1, 250);
+        post(1, 100);
+        Message early = post(1, 200);
+        Message tie = post(1, 200);
+        post(1, 300);
+
+        Assert.assertEquals(List.of(early, tie, late), getAllPages("/messages?since=200&until=300&limit=1"));
+        Assert.assertEquals(List.of(early, tie, late), getAllPages("/messages?since=200&until=300"));
+    }
+
+    /**
+     * Sending GET localhost:8080/accounts/1/messages?since=100&until=1000 when another account posted in that range
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: only the messages of account 1 in the range, in time_posted_epoch order
+     */
+    @Test
+    public void getAccountMessagesInTimeRange() throws IOException, InterruptedException {
+        HttpResponse<String> register = send("POST", "/register",
+                "{\"username\": \"timeuser\", \"password\": \"password\"}");
+        Account other = objectMapper.readValue(register.body(), Account.class);
+        Message second = post(1, 500);
+        post(other.account_id, 400);
+        Message first = post(1, 150);
+        post(1, 1000);
+
+        Assert.assertEquals(List.of(first, second), getAllPages("/accounts/1/messages?since=100&until=1000&limit=1"));
+        Assert.assertEquals(List.of(first), getAllPages("/accounts/1/messages?until=200&limit=5"));
+    }
+
+    /**
+     * Sending GET localhost:8080/messages with an illformed since, and with a message_id cursor on a time range
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getMessagesInTimeRangeRejectsBadParameters() throws IOException, InterruptedException {
+        Assert.assertEquals(400, send("GET", "/messages?since=yesterday", null).statusCode());
+        post(1, 100);
+        post(1, 200);
+        String cursor = send("GET", "/messages?limit=1", null).headers()
+                .firstValue(SocialMediaController.NEXT_CURSOR_HEADER).orElse(null);
+        Assert.assertNotNull(cursor);
+        Assert.assertEquals(400, send("GET", "/messages?since=0&after=" + cursor, null).statusCode());
+    }
+}
@@ -0,0 +1,139 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class TimelineTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app with timelines of at most 3 messages, and
+     * create a new webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        System.setProperty("socialmedia.timeline.maxMessages", "3");
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        System.clearProperty("socialmedia.timeline.maxMessages");
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Message> getMessages(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET", path, null);
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+    }
+
+    private long selectsByPostedBy() throws IOException, InterruptedException {
+        String series = "socialmedia_db_queries_total{query=\"MessageDAO.selectMessagesByPostedBy\"} ";
+        for (String line : send("GET", "/metrics", null).body().split("\n")) {
+            if (line.startsWith(series)) {
+                return Long.parseLong(line.substring(series.length()));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Sending GET localhost:8080/accounts/1/messages twice, with a POST localhost:8080/messages in between
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the seeded message, then the seeded and the posted message, both times without running the
+     *  full listing query
+     */
+    @Test
+    public void listingIsServedFromTimeline() throws IOException, InterruptedException {
+        long before = selectsByPostedBy();
+
+        Assert.assertEquals(List.of(new Message(1, 1, "test message 1", 1669947792)),
+                getMessages("/accounts/1/messages"));
+        HttpResponse<String> post = send("POST", "/messages",
+                "{\"posted_by\":1, \"message_text\": \"posted\", \"time_posted_epoch\": 1669947793}");
+        Assert.assertEquals(200, post.statusCode());
+        Message posted = objectMapper.readValue(post.body(), Message.class);
+
+        Assert.assertEquals(List.of(new Message(1, 1, "test message 1", 1669947792), posted),
+                getMessages("/accounts/1/messages"));
+        Assert.assertEquals(before, selectsByPostedBy());
+    }
+
+    /**
+     * Sending POST localhost:8080/messages four times, PATCH and DELETE localhost:8080/messages/{message_id}, then
+     * GET localhost:8080/accounts/1/messages in full and page by page
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every message of the account, including those that fell out of the timeline, with the patch
+     *  applied and without the deleted message
+     */
+    @Test
+    public void listingCoversMessagesBeyondTimeline() throws IOException, InterruptedException {
+        List<Message> expected = new ArrayList<>();
+        expected.add(new Message(1, 1, "test message 1", 1669947792));
+        getMessages("/accounts/1/messages");
+        for (int i = 0; i < 4; i++) {
+            HttpResponse<String> post = send("POST", "/messages",
+                    "{\"posted_by\":1, \"message_text\": \"post " + i + "\", \"time_posted_epoch\": 1669947793}");
+            expected.add(objectMapper.readValue(post.body(), Message.class));
+        }
+        Message patched = expected.get(4);
+        Assert.assertEquals(200, send("PATCH", "/messages/" + patched.message_id,
+                "{\"message_text\": \"patched\"}").statusCode());
+        patched.message_text = "patched";
+        Message deleted = expected.remove(3);
+        Assert.assertEquals(200, send("DELETE", "/messages/" + deleted.message_id, null).statusCode());
+
+        Assert.assertEquals(expected, getMessages("/accounts/1/messages"));
+
+        List<Message> paged = new ArrayList<>();
+        String path = "/accounts/1/messages?limit=2";
+        while (path != null) {
+            HttpResponse<String> response = send("GET", path, null);
+            paged.addAll(objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){}));
+            String next = response.headers().firstValue(SocialMediaController.NEXT_CURSOR_HEADER).orElse(null);
+            path = next == null ? null : "/accounts/1/messages?limit=2&after=" + next;
+        }
+        Assert.assertEquals(expected, paged);
+    }
+}